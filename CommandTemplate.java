@@ -0,0 +1,116 @@
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 预编译的奖励命令，加载时记录占位符位置，抽奖时只填充这些位置
+public class CommandTemplate {
+
+    // 原始命令
+    private final String command;
+    // 占位符之间的文本片段，数量比占位符多一个
+    private final String[] literals;
+    // 占位符，包含两侧的 % 符号
+    private final String[] placeholders;
+    // give 命令的物品数量，不是可合并的 give 命令时为 0
+    private final int giveAmount;
+    // give 命令是否显式写出了物品数量
+    private final boolean giveAmountExplicit;
+
+    private CommandTemplate(String command, String[] literals, String[] placeholders) {
+        this.command = command;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        // 识别 give <玩家> <物品> [数量] 形式的命令，多次执行时可合并为一条
+        String[] parts = command.split(" ");
+        boolean giveCommand = (parts.length == 3 || parts.length == 4)
+                && (parts[0].equalsIgnoreCase("give") || parts[0].equalsIgnoreCase("minecraft:give"))
+                && !parts[1].isEmpty() && !parts[2].isEmpty();
+        int amount = 0;
+        if (giveCommand && parts.length == 3) {
+            amount = 1;
+        } else if (giveCommand && parts[3].matches("[1-9][0-9]{0,5}")) {
+            amount = Integer.parseInt(parts[3]);
+        }
+        this.giveAmount = amount;
+        this.giveAmountExplicit = parts.length == 4;
+    }
+
+    public static CommandTemplate compile(String command) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int start = 0;
+        int open = command.indexOf('%');
+        while (open >= 0) {
+            int close = command.indexOf('%', open + 1);
+            if (close < 0) {
+                break;
+            }
+            String placeholder = command.substring(open, close + 1);
+            // 占位符中不能包含空格，否则视为普通文本，从右侧的 % 继续查找
+            if (close > open + 1 && placeholder.indexOf(' ') < 0) {
+                literals.add(command.substring(start, open));
+                placeholders.add(placeholder);
+                start = close + 1;
+                open = command.indexOf('%', start);
+            } else {
+                open = close;
+            }
+        }
+        literals.add(command.substring(start));
+        return new CommandTemplate(command, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    // 编译命令列表
+    public static List<CommandTemplate> compileAll(List<String> commands) {
+        List<CommandTemplate> templates = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            templates.add(compile(command));
+        }
+        return Collections.unmodifiableList(templates);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    // 是否可以把多次执行合并为一条命令
+    public boolean isMergeable() {
+        return giveAmount > 0;
+    }
+
+    // 生成执行 times 次的合并命令，仅适用于可合并的 give 命令
+    public String renderMerged(Player player, boolean placeholderApiEnabled, int times) {
+        String rendered = render(player, placeholderApiEnabled);
+        String amount = Integer.toString(giveAmount * times);
+        if (giveAmountExplicit) {
+            return rendered.substring(0, rendered.lastIndexOf(' ') + 1) + amount;
+        }
+        return rendered + " " + amount;
+    }
+
+    // 为指定玩家填充占位符，生成最终命令
+    public String render(Player player, boolean placeholderApiEnabled) {
+        if (placeholders.length == 0) {
+            return command;
+        }
+        StringBuilder builder = new StringBuilder(command.length() + 16);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String placeholder = placeholders[i];
+            // 常用占位符直接填充，其余交给 PlaceholderAPI
+            if (placeholder.equals("%player_name%")) {
+                builder.append(player.getName());
+            } else if (placeholder.equals("%player_uuid%")) {
+                builder.append(player.getUniqueId());
+            } else if (placeholderApiEnabled) {
+                builder.append(PlaceholderAPI.setPlaceholders(player, placeholder));
+            } else {
+                builder.append(placeholder);
+            }
+        }
+        return builder.append(literals[placeholders.length]).toString();
+    }
+}
@@ -0,0 +1,125 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// 简单的数据库连接池，负责连接校验、最长存活时间和断线重连
+public class ConnectionPool {
+
+    // 空闲超过该时间的连接在借出前需要校验
+    private static final long VALIDATION_IDLE_MILLIS = 30_000;
+    // 连接校验超时时间（秒）
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    // JDBC 连接地址
+    private final String url;
+    // 数据库用户名，SQLite 为 null
+    private final String username;
+    // 数据库密码，SQLite 为 null
+    private final String password;
+    // 连接最长存活时间（毫秒），0 表示不限制
+    private final long maxLifetimeMillis;
+    // 获取连接的最长等待时间（毫秒）
+    private final long connectionTimeoutMillis;
+    // 每个连接缓存的预编译语句数量
+    private final int statementCacheSize;
+    // 日志对象
+    private final Logger logger;
+    // 空闲连接，最近归还的连接优先借出
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    // 可借出的连接数量
+    private final Semaphore permits;
+    // 连接池是否已关闭
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String username, String password, int maximumPoolSize,
+                          long maxLifetimeMillis, long connectionTimeoutMillis, int statementCacheSize, Logger logger) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.logger = logger;
+        this.permits = new Semaphore(Math.max(1, maximumPoolSize), true);
+    }
+
+    // 借出一个可用连接，使用完毕后调用 close 归还
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("获取数据库连接超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        try {
+            // 优先复用空闲连接，丢弃已过期或已失效的连接
+            PooledConnection connection;
+            while ((connection = idleConnections.pollFirst()) != null) {
+                if (isUsable(connection)) {
+                    return connection;
+                }
+                connection.closePhysically();
+            }
+            return open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // 归还连接，已损坏或超过存活时间的连接直接关闭
+    void release(PooledConnection connection) {
+        if (closed || connection.isBroken() || isExpired(connection)) {
+            connection.closePhysically();
+        } else {
+            connection.touch();
+            idleConnections.addFirst(connection);
+        }
+        permits.release();
+    }
+
+    // 关闭所有空闲连接，借出中的连接在归还时关闭
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.closePhysically();
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = username == null
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, username, password);
+        return new PooledConnection(this, connection, statementCacheSize, logger);
+    }
+
+    private boolean isExpired(PooledConnection connection) {
+        return maxLifetimeMillis > 0 && System.currentTimeMillis() - connection.getCreatedAt() >= maxLifetimeMillis;
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        if (isExpired(connection)) {
+            return false;
+        }
+        if (System.currentTimeMillis() - connection.getLastUsed() < VALIDATION_IDLE_MILLIS) {
+            return true;
+        }
+        // 空闲较久的连接可能已被数据库的 wait_timeout 断开，借出前校验
+        try {
+            return connection.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 内置的英文消息，语言文件中缺少的消息使用这里的文本
+// 插件更新新增消息后，服务器上已有的旧语言文件不需要手动补全
+public final class DefaultMessages {
+
+    private static final Map<String, String> MESSAGES = new LinkedHashMap<>();
+
+    static {
+        MESSAGES.put("no-permission", "&cYou do not have permission to do that.");
+        MESSAGES.put("lottery-not-ready", "&cThe lottery is still loading, please try again in a moment.");
+        MESSAGES.put("lottery-busy", "&cYour previous draw is still being processed.");
+        MESSAGES.put("lottery-data-load-failed", "&cCould not load your lottery data, please try again later.");
+        MESSAGES.put("lottery-cooldown-remaining", "&cPlease wait {0} seconds before drawing again.");
+        MESSAGES.put("lottery-count-limit-reached", "&cYou have reached the draw limit.");
+        MESSAGES.put("lottery-count-not-enough", "&cYou only have {0} draws left.");
+        MESSAGES.put("lottery-invalid-draws", "&cYou can draw between 1 and {0} times at once.");
+        MESSAGES.put("lottery-win", "&aCongratulations, you won a prize!");
+        MESSAGES.put("lottery-lose", "&7No prize this time.");
+        MESSAGES.put("lottery-guarantee-triggered", "&eYour next draw is guaranteed to win!");
+        MESSAGES.put("lottery-guarantee-win", "&aYou received the guaranteed reward!");
+        MESSAGES.put("lottery-multi-result", "&a{0} draws, {1} wins: &f{2}");
+        MESSAGES.put("lottery-winning-details", "&7Chance: {0}% | Time: {1} | Prize: {2}");
+        MESSAGES.put("lottery-reloaded", "&aLottery configuration reloaded.");
+        MESSAGES.put("lottery-reload-failed", "&cCould not reload the configuration, see the console for details.");
+        MESSAGES.put("lottery-stats-header", "&6Lottery statistics (times in ms):");
+        MESSAGES.put("lottery-stats-stage", "&7{0}: count {1}, p50 {2}, p99 {3}, max {4}");
+        MESSAGES.put("lottery-stats-counter", "&7{0}: {1}");
+        MESSAGES.put("lottery-stats-queue", "&7queue {0}: {1}");
+        MESSAGES.put("lottery-stats-reset", "&aLottery statistics reset.");
+        MESSAGES.put("lottery-history-usage", "&cUsage: /lottery history [player] [page]");
+        MESSAGES.put("lottery-history-player-not-found", "&cPlayer {0} was not found.");
+        MESSAGES.put("lottery-history-failed", "&cCould not load the lottery history.");
+        MESSAGES.put("lottery-history-header", "&6Lottery history of {0}, page {1}:");
+        MESSAGES.put("lottery-history-entry", "&7#{0} {1} [{2}] {3}");
+        MESSAGES.put("lottery-history-empty", "&7{0} has no lottery history on page {1}.");
+        MESSAGES.put("lottery-history-next", "&7Next page: /lottery history {0} {1}");
+        MESSAGES.put("lottery-history-lose", "no prize");
+        MESSAGES.put("lottery-simulate-usage", "&cUsage: /lottery simulate <tier> <draws>, at most {0} draws");
+        MESSAGES.put("lottery-simulate-running", "&cA simulation is already running.");
+        MESSAGES.put("lottery-simulate-started", "&7Simulating {1} draws for tier {0}...");
+        MESSAGES.put("lottery-simulate-header", "&6Simulated {1} draws for tier {0} in {2} ms:");
+        MESSAGES.put("lottery-simulate-prize", "&7{0} {1}: {2} wins, {3}% (configured {4}%)");
+        MESSAGES.put("lottery-simulate-loss", "&7No prize: {0}, {1}% (configured {2}%), {3}% of all draws");
+        MESSAGES.put("lottery-simulate-guarantee", "&7Guaranteed rewards: {0} ({1}%), triggered {2} times, one every {3} draws");
+        MESSAGES.put("lottery-export-usage", "&cUsage: /lottery export <from yyyy-MM-dd> <to yyyy-MM-dd> <csv|ndjson>[.gz]");
+        MESSAGES.put("lottery-export-running", "&cAn export is already running.");
+        MESSAGES.put("lottery-export-started", "&7Exporting lottery logs to {0}...");
+        MESSAGES.put("lottery-export-progress", "&7Exported {0} logs...");
+        MESSAGES.put("lottery-export-done", "&aExported {1} logs to {0} in {2} s.");
+        MESSAGES.put("lottery-export-failed", "&cThe export failed, see the console for details.");
+        MESSAGES.put("lottery-migrate-usage", "&cUsage: /lottery migrate <sqlite|mysql> <sqlite|mysql>");
+        MESSAGES.put("lottery-migrate-target-active", "&c{0} is the storage in use and cannot be the migration target.");
+        MESSAGES.put("lottery-migrate-running", "&cA migration is already running.");
+        MESSAGES.put("lottery-migrate-started", "&7Migrating lottery data from {0} to {1}...");
+        MESSAGES.put("lottery-migrate-progress", "&7{0}: copied {1} rows...");
+        MESSAGES.put("lottery-migrate-table-verified", "&a{0}: {1} / {2} rows, checksum {3} / {4}");
+        MESSAGES.put("lottery-migrate-table-mismatch", "&c{0}: {1} / {2} rows, checksum {3} / {4} do not match");
+        MESSAGES.put("lottery-migrate-done", "&aMigration to {0} verified in {1} s. Set storage-type to {0} and restart the server.");
+        MESSAGES.put("lottery-migrate-incomplete", "&cMigration to {0} finished in {1} s but the data does not match, run the command again.");
+        MESSAGES.put("lottery-migrate-failed", "&cThe migration failed, see the console for details.");
+        MESSAGES.put("lottery-migrate-paused", "&cThe lottery is paused while a data migration is being verified, please try again in a moment.");
+        MESSAGES.put("lottery-verify-usage", "&cUsage: /lottery verify <draw id>");
+        MESSAGES.put("lottery-verify-failed", "&cCould not load draw #{0}.");
+        MESSAGES.put("lottery-verify-not-found", "&cDraw #{0} was not found.");
+        MESSAGES.put("lottery-verify-header", "&6Draw #{0} by {1} at {2} [{3}]: {4}");
+        MESSAGES.put("lottery-verify-guarantee", "&7This was a guaranteed reward and does not use the random seed.");
+        MESSAGES.put("lottery-verify-no-snapshot", "&7This draw has no recorded seed and cannot be replayed.");
+        MESSAGES.put("lottery-verify-match", "&aSeed {0} replays to {1}, the result matches.");
+        MESSAGES.put("lottery-verify-mismatch", "&cSeed {0} replays to {1}, the result does not match.");
+    }
+
+    private DefaultMessages() {
+    }
+
+    // 把 messages 中缺少的消息补上内置文本
+    public static void fillMissing(Map<String, MessageTemplate> messages) {
+        for (Map.Entry<String, String> message : MESSAGES.entrySet()) {
+            messages.computeIfAbsent(message.getKey(), key -> MessageTemplate.compile(message.getValue()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// 抽奖记录翻页游标，记住已访问页末尾的 (时间, 编号)，翻页时从已知位置沿索引定位
+// 跳到未访问过的页时从最后一个已知位置逐页前进，每次最多用 OFFSET 跳过一页以内的记录，不从第一页开始跳过
+public class HistoryCursor {
+
+    // 查询的玩家
+    private final UUID playerUUID;
+    // 每页最后一条记录的时间和编号，下标 0 对应第 1 页
+    private final List<long[]> pageEnds = new ArrayList<>();
+
+    public HistoryCursor(UUID playerUUID) {
+        this.playerUUID = playerUUID;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    // 返回指定页的起始位置，第 1 页为从最新的记录开始；之前的页末尾未知时用 seek 从最后一个已知位置逐页查出并记录
+    // 读取、查询和记录在同一把锁内完成，同一游标上并发的翻页不会重复查询或交错记录；目标页超出记录总数时返回 null
+    public synchronized long[] seekPageStart(int page, PageSeek seek) throws SQLException {
+        while (pageEnds.size() < page - 1) {
+            long[] end = seek.nextPageEnd(pageStart(pageEnds.size() + 1));
+            if (end == null) {
+                return null;
+            }
+            pageEnds.add(end);
+        }
+        return pageStart(page);
+    }
+
+    // 记录指定页的末尾位置，只能按顺序追加
+    public synchronized void setPageEnd(int page, long time, long id) {
+        if (page == pageEnds.size() + 1) {
+            pageEnds.add(new long[]{time, id});
+        }
+    }
+
+    private long[] pageStart(int page) {
+        return page == 1 ? new long[]{Long.MAX_VALUE, Long.MAX_VALUE} : pageEnds.get(page - 2);
+    }
+
+    // 从一页的起始位置查询该页最后一条记录的位置
+    public interface PageSeek {
+
+        // 该页没有记录时返回 null
+        long[] nextPageEnd(long[] start) throws SQLException;
+    }
+}
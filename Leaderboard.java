@@ -0,0 +1,186 @@
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// 内存中的排行榜，每次抽奖增量更新，读取前 N 名时无锁
+// 按周期重置的排行榜记录所属的周期编号，周期过期时视为空榜，在下次更新时清空
+// 创建后先接受增量，数据库中的分数在后台加载，加载成功前的增量都记下来，加载成功后与加载结果合并
+public class Leaderboard {
+
+    // 保留的名次数量
+    private final int size;
+    // 重置周期
+    private final ResetPeriod period;
+    // 所有玩家的分数，仅在持有锁时访问
+    private final Map<UUID, Long> scores = new HashMap<>();
+    // 当前周期编号，仅在持有锁时访问
+    private long epoch;
+    // 加载成功前收到的增量，加载成功后为 null，仅在持有锁时访问
+    private List<Increment> pending = new ArrayList<>();
+    // 前 N 名的不可变快照，读取时无锁
+    private volatile Snapshot snapshot;
+
+    public Leaderboard(int size, ResetPeriod period) {
+        this.size = Math.max(1, size);
+        this.period = period;
+        this.epoch = period.currentEpoch();
+        this.snapshot = new Snapshot(epoch, new Entry[0]);
+    }
+
+    // 第 rank 名（从 1 开始），没有该名次时返回 null
+    public Entry getEntry(int rank) {
+        Snapshot current = snapshot;
+        if (current.epoch != period.currentEpoch() || rank < 1 || rank > current.entries.length) {
+            return null;
+        }
+        return current.entries[rank - 1];
+    }
+
+    // 增加玩家的分数，玩家进入或已在前 N 名时更新快照
+    // sequence 为这次增量在该玩家的数据中的位置，随增量严格递增，与加载结果比较判断是否已计入
+    public synchronized void increment(UUID playerUUID, String name, long amount, long sequence) {
+        rollOver();
+        if (pending != null) {
+            pending.add(new Increment(playerUUID, name, amount, sequence));
+        }
+        long score = scores.merge(playerUUID, amount, Long::sum);
+        Entry[] top = snapshot.entries;
+        boolean ranked = false;
+        for (Entry entry : top) {
+            if (entry.playerUUID.equals(playerUUID)) {
+                ranked = true;
+                break;
+            }
+        }
+        if (!ranked && top.length >= size && score <= top[top.length - 1].score) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(top.length + 1);
+        for (Entry entry : top) {
+            if (!entry.playerUUID.equals(playerUUID)) {
+                entries.add(entry);
+            }
+        }
+        entries.add(new Entry(playerUUID, name, score));
+        publish(entries);
+    }
+
+    // 合并从数据库成功加载的 loadEpoch 周期的分数，之后不再记录增量，只为前 N 名查询玩家名称
+    // loadedUntil 返回每名玩家的加载结果已计入到哪个位置的增量，位置更大的增量加到加载结果上
+    // 加载期间进入新周期时丢弃加载结果
+    public synchronized void load(long loadEpoch, Map<UUID, Long> loaded, ToLongFunction<UUID> loadedUntil, Function<UUID, String> names) {
+        rollOver();
+        List<Increment> increments = pending;
+        if (increments == null) {
+            return;
+        }
+        pending = null;
+        if (loadEpoch != epoch) {
+            return;
+        }
+        scores.clear();
+        scores.putAll(loaded);
+        Map<UUID, String> knownNames = new HashMap<>();
+        for (Increment increment : increments) {
+            knownNames.put(increment.playerUUID, increment.name);
+            if (increment.sequence > loadedUntil.applyAsLong(increment.playerUUID)) {
+                scores.merge(increment.playerUUID, increment.amount, Long::sum);
+            }
+        }
+        // 用小顶堆选出前 N 名
+        PriorityQueue<Map.Entry<UUID, Long>> heap = new PriorityQueue<>(size + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<UUID, Long> score : scores.entrySet()) {
+            heap.add(score);
+            if (heap.size() > size) {
+                heap.poll();
+            }
+        }
+        List<Entry> entries = new ArrayList<>(heap.size());
+        for (Map.Entry<UUID, Long> score : heap) {
+            String name = knownNames.get(score.getKey());
+            entries.add(new Entry(score.getKey(), name != null ? name : names.apply(score.getKey()), score.getValue()));
+        }
+        publish(entries);
+    }
+
+    public ResetPeriod getPeriod() {
+        return period;
+    }
+
+    // 进入新周期时清空上一周期的分数和尚未合并的增量
+    private void rollOver() {
+        long now = period.currentEpoch();
+        if (now != epoch) {
+            scores.clear();
+            if (pending != null) {
+                pending.clear();
+            }
+            epoch = now;
+            snapshot = new Snapshot(epoch, new Entry[0]);
+        }
+    }
+
+    private void publish(List<Entry> entries) {
+        entries.sort((a, b) -> Long.compare(b.score, a.score));
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+        }
+        snapshot = new Snapshot(epoch, entries.toArray(new Entry[0]));
+    }
+
+    // 一个名次，创建后不可修改
+    public static final class Entry {
+
+        private final UUID playerUUID;
+        // 玩家名称，查询不到时为 UUID
+        private final String name;
+        private final long score;
+
+        private Entry(UUID playerUUID, String name, long score) {
+            this.playerUUID = playerUUID;
+            this.name = name != null ? name : playerUUID.toString();
+            this.score = score;
+        }
+
+        public UUID getPlayerUUID() {
+            return playerUUID;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getScore() {
+            return score;
+        }
+    }
+
+    // 加载成功前收到的一次增量
+    private static final class Increment {
+
+        private final UUID playerUUID;
+        private final String name;
+        private final long amount;
+        // 增量在该玩家的数据中的位置
+        private final long sequence;
+
+        private Increment(UUID playerUUID, String name, long amount, long sequence) {
+            this.playerUUID = playerUUID;
+            this.name = name;
+            this.amount = amount;
+            this.sequence = sequence;
+        }
+    }
+
+    // 某一时刻的前 N 名
+    private static final class Snapshot {
+
+        private final long epoch;
+        private final Entry[] entries;
+
+        private Snapshot(long epoch, Entry[] entries) {
+            this.epoch = epoch;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+// 把升级前按玩家名称和命令文本记录的旧日志分批转换到紧凑的日志表，全部转换后删除旧表
+// 每批的写入、累计抽奖次数的累加和删除在同一个事务中提交，中断后下次启动从剩余的旧日志继续
+// 每批作为独立任务提交到存储线程，批次之间不会阻塞抽奖日志的写入
+public class LegacyLogConverter {
+
+    // 旧日志转换后的编号偏移，旧表编号不超过 32 位，转换后为负数，排在升级后的所有日志之前，保持编号与时间的顺序一致
+    static final long ID_OFFSET = 1L << 32;
+    // 旧日志中未中奖的记录文本
+    private static final String LEGACY_LOSE = "未中奖";
+
+    // 插件对象
+    private final JavaPlugin plugin;
+    // 数据库连接池
+    private final ConnectionPool pool;
+    // 存储线程
+    private final Executor executor;
+    // 旧日志表
+    private final String table;
+    // 是否为 MySQL，累加累计抽奖次数的语句与 SQLite 不同
+    private final boolean mysql;
+    // 每批转换的日志条数
+    private final int chunkSize;
+    // 按玩家名称查找 UUID，只在存储线程上调用
+    private final Function<String, UUID> playerResolver;
+    // 奖品命令文本（命令列表的 toString）对应的权限组和奖品编号，按当前配置匹配
+    private final Map<String, PrizeRef> prizes = new HashMap<>();
+    // 已查找过的玩家名称
+    private final Map<String, UUID> players = new HashMap<>();
+    // 旧日志的时间格式
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // 已转换的日志条数
+    private long converted;
+    // 奖品已不在当前配置中的日志条数
+    private long unmatched;
+
+    public LegacyLogConverter(JavaPlugin plugin, ConnectionPool pool, Executor executor, String table, boolean mysql, int chunkSize,
+                              LotterySettings settings, Function<String, UUID> playerResolver) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.executor = executor;
+        this.table = table;
+        this.mysql = mysql;
+        this.chunkSize = chunkSize;
+        this.playerResolver = playerResolver;
+        // 旧日志没有记录权限组，命令相同时按普通、会员、OP 的顺序取第一个
+        for (LotteryTier tier : LotteryTier.values()) {
+            PrizeTable tierPrizes = settings.getPrizes(tier);
+            for (int slot = 0; slot < tierPrizes.size(); slot++) {
+                Prize prize = tierPrizes.getSlot(slot);
+                prizes.putIfAbsent(prize.getCommands().toString(), new PrizeRef(tier, prize.getId()));
+            }
+        }
+        prizes.putIfAbsent(settings.getGuaranteeCommands().toString(), new PrizeRef(LotteryTier.DEFAULT, LotteryLogRecord.PRIZE_GUARANTEE));
+    }
+
+    // 开始转换，必须在存储线程上调用
+    public void start() {
+        step();
+    }
+
+    private void step() {
+        int rows;
+        try (PooledConnection connection = pool.borrow()) {
+            rows = convertChunk(connection);
+            if (rows == 0) {
+                try (Statement statement = connection.getConnection().createStatement()) {
+                    statement.execute("DROP TABLE " + table);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("无法转换旧抽奖日志: " + e.getMessage());
+            return;
+        }
+        if (rows == 0) {
+            if (converted > 0) {
+                plugin.getLogger().info("已转换 " + converted + " 条旧抽奖日志，其中 " + unmatched + " 条的奖品已不在当前配置中");
+            }
+            plugin.getLogger().info("已删除转换完毕的旧日志表: " + table);
+            return;
+        }
+        try {
+            // 重新排队，让等待中的日志写入先执行
+            executor.execute(this::step);
+        } catch (RejectedExecutionException e) {
+            // 插件正在关闭，剩余日志下次启动后继续转换
+        }
+    }
+
+    // 转换编号最小的一批旧日志并从旧表删除，返回转换的条数
+    private int convertChunk(PooledConnection pooled) throws SQLException {
+        List<LotteryLogRecord> records = new ArrayList<>(chunkSize);
+        List<Long> ids = new ArrayList<>(chunkSize);
+        PreparedStatement select = pooled.prepareStatement("SELECT id, player_name, result, timestamp FROM " + table + " ORDER BY id LIMIT ?");
+        select.setInt(1, chunkSize);
+        try (ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong("id"));
+                records.add(convert(resultSet.getString("player_name"), resultSet.getString("result"), resultSet.getString("timestamp")));
+            }
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        Connection connection = pooled.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            PreparedStatement insert = pooled.prepareStatement("INSERT INTO lottery_logs (id, player_uuid, draw_time, tier, prize_id, seed, config_id) VALUES (?,?,?,?,?,0,0)");
+            for (int i = 0; i < records.size(); i++) {
+                LotteryLogRecord record = records.get(i);
+                insert.setLong(1, ids.get(i) - ID_OFFSET);
+                insert.setBytes(2, LotteryStorage.toBytes(record.getPlayerUUID()));
+                insert.setLong(3, record.getTime());
+                insert.setInt(4, record.getTier().ordinal());
+                insert.setInt(5, record.getPrizeId());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            Map<UUID, Long> draws = new HashMap<>();
+            for (LotteryLogRecord record : records) {
+                draws.merge(record.getPlayerUUID(), 1L, Long::sum);
+            }
+            LotteryStorage.addTotalDraws(pooled, draws, mysql);
+            PreparedStatement delete = pooled.prepareStatement("DELETE FROM " + table + " WHERE id <= ?");
+            delete.setLong(1, ids.get(ids.size() - 1));
+            delete.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            pooled.markBrokenIfFatal(e);
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                pooled.markBrokenIfFatal(e);
+            }
+        }
+        converted += records.size();
+        return records.size();
+    }
+
+    private LotteryLogRecord convert(String playerName, String result, String timestamp) {
+        String name = playerName != null ? playerName : "";
+        UUID playerUUID = players.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> playerResolver.apply(name));
+        long time;
+        try {
+            time = timestamp != null ? dateFormat.parse(timestamp).getTime() : 0;
+        } catch (ParseException e) {
+            time = 0;
+        }
+        if (LEGACY_LOSE.equals(result)) {
+            return new LotteryLogRecord(playerUUID, LotteryTier.DEFAULT, LotteryLogRecord.PRIZE_NONE, time, 0, 0);
+        }
+        PrizeRef prize = result != null ? prizes.get(result) : null;
+        if (prize == null) {
+            unmatched++;
+            return new LotteryLogRecord(playerUUID, LotteryTier.DEFAULT, LotteryLogRecord.PRIZE_UNKNOWN, time, 0, 0);
+        }
+        return new LotteryLogRecord(playerUUID, prize.tier, prize.prizeId, time, 0, 0);
+    }
+
+    // 旧日志命令文本对应的权限组和奖品编号
+    private static final class PrizeRef {
+
+        private final LotteryTier tier;
+        private final int prizeId;
+
+        private PrizeRef(LotteryTier tier, int prizeId) {
+            this.tier = tier;
+            this.prizeId = prizeId;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+// 抽奖日志归档任务，把过期日志分批写入 gzip 压缩的 CSV 文件后从数据库删除
+// 每批作为独立任务提交到存储线程，批次之间不会阻塞抽奖日志的写入
+public class LogArchiver {
+
+    // 插件对象
+    private final JavaPlugin plugin;
+    // 数据库连接池
+    private final ConnectionPool pool;
+    // 存储线程
+    private final Executor executor;
+    // 归档文件夹
+    private final File archiveFolder;
+    // 每批归档的日志条数
+    private final int chunkSize;
+    // 是否有归档任务正在进行，仅在存储线程上访问
+    private boolean running;
+
+    public LogArchiver(JavaPlugin plugin, ConnectionPool pool, Executor executor, File archiveFolder, int chunkSize) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.executor = executor;
+        this.archiveFolder = archiveFolder;
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 归档表中时间列早于 cutoff 的日志，必须在存储线程上调用
+    // 表必须有 id 列，日志按时间顺序编号（旧日志转换后为负数），因此时间早于 cutoff 的日志都在编号较小的一端
+    public void archive(String table, String timeColumn, Object cutoff) {
+        running = true;
+        new Job(table, timeColumn, cutoff).step();
+    }
+
+    // 一张表的归档进度
+    private class Job {
+
+        private final String table;
+        private final String timeColumn;
+        private final Object cutoff;
+        // 第一条未过期日志的编号，本次只归档编号小于它的日志
+        private long boundaryId = -1;
+        // 已归档的最大编号
+        private long lastId = Long.MIN_VALUE;
+        // 已归档的日志条数
+        private long archived;
+        // 归档文件，有日志需要归档时才创建
+        private File file;
+        private BufferedWriter writer;
+
+        private Job(String table, String timeColumn, Object cutoff) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+            this.cutoff = cutoff;
+        }
+
+        private void step() {
+            int copied;
+            try (PooledConnection connection = pool.borrow()) {
+                if (boundaryId < 0) {
+                    boundaryId = findBoundary(connection);
+                }
+                copied = copyChunk(connection);
+                if (copied > 0) {
+                    // 先写入文件再删除，中途失败时最多在归档中重复一批
+                    PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id <= ?");
+                    delete.setLong(1, lastId);
+                    delete.executeUpdate();
+                }
+            } catch (SQLException | IOException e) {
+                plugin.getLogger().severe("无法归档抽奖日志: " + e.getMessage());
+                closeWriter();
+                running = false;
+                return;
+            }
+            if (copied == 0) {
+                finish();
+                return;
+            }
+            try {
+                // 重新排队，让等待中的日志写入先执行
+                executor.execute(this::step);
+            } catch (RejectedExecutionException e) {
+                // 插件正在关闭，剩余日志下次启动后继续归档
+                closeWriter();
+                running = false;
+            }
+        }
+
+        private long findBoundary(PooledConnection connection) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement("SELECT id FROM " + table + " WHERE " + timeColumn + " >= ? ORDER BY id LIMIT 1");
+            statement.setObject(1, cutoff);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : Long.MAX_VALUE;
+            }
+        }
+
+        private int copyChunk(PooledConnection connection) throws SQLException, IOException {
+            PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + table + " WHERE id > ? AND id < ? ORDER BY id LIMIT ?");
+            statement.setLong(1, lastId);
+            statement.setLong(2, boundaryId);
+            statement.setInt(3, chunkSize);
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columns = metaData.getColumnCount();
+                while (resultSet.next()) {
+                    if (writer == null) {
+                        openWriter(metaData);
+                    }
+                    for (int i = 1; i <= columns; i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        writer.write(formatValue(resultSet.getObject(i)));
+                    }
+                    writer.newLine();
+                    lastId = resultSet.getLong("id");
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                writer.flush();
+                archived += rows;
+            }
+            return rows;
+        }
+
+        private void openWriter(ResultSetMetaData metaData) throws SQLException, IOException {
+            if (!archiveFolder.exists()) {
+                archiveFolder.mkdirs();
+            }
+            file = new File(archiveFolder, table + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv.gz");
+            // syncFlush 保证每批写完后文件中已有完整可解压的数据
+            writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file), true), StandardCharsets.UTF_8));
+            // 首行写入列名
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(metaData.getColumnLabel(i));
+            }
+            writer.newLine();
+        }
+
+        private void finish() {
+            closeWriter();
+            if (archived > 0) {
+                plugin.getLogger().info("已归档 " + archived + " 条抽奖日志到 " + file.getName());
+            }
+            running = false;
+        }
+
+        private void closeWriter() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                plugin.getLogger().severe("无法关闭归档文件: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    // 转换为 CSV 字段，二进制的玩家 UUID 还原为文本，含分隔符的字段加引号
+    private static String formatValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof byte[] && ((byte[]) value).length == 16
+                ? LotteryStorage.toUUID((byte[]) value).toString()
+                : String.valueOf(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
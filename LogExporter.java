@@ -0,0 +1,104 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+// 抽奖日志导出任务，按 (抽奖时间, 编号) 分批读取并逐行写入文件，内存占用与导出条数无关
+// 日志批量写入且可能来自多台服务器，编号与时间的顺序不一致，只按时间索引定位，不换算为编号范围
+// 每批单独借用连接，SQLite 的唯一连接不会在整个导出期间被占用，抽奖日志仍可正常写入
+public class LogExporter {
+
+    // 导出格式
+    public enum Format {
+        // 首行为列名的 CSV
+        CSV,
+        // 每行一个 JSON 对象
+        NDJSON
+    }
+
+    // 数据库连接池
+    private final ConnectionPool pool;
+    // 每批读取的日志条数，同时作为 JDBC 的 fetch size
+    private final int fetchSize;
+
+    public LogExporter(ConnectionPool pool, int fetchSize) {
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+    }
+
+    // 导出时间在 [from, to) 之间的日志，阻塞直到完成，不能在主线程或存储线程调用
+    // 每写完一批调用一次 progress，返回导出的条数
+    public long export(long from, long to, Format format, boolean gzip, File file, LongConsumer progress) throws SQLException, IOException {
+        long exported = 0;
+        // 整条输出流都由 try 管理，GZIP 头写入失败时也会关闭文件
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             OutputStream output = gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16) : Channels.newOutputStream(channel);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16)) {
+            if (format == Format.CSV) {
+                writer.write("id,player_uuid,draw_time,time,tier,prize_id,seed,config_id\n");
+            }
+            // 上一批最后一行的位置，每批在 idx_lottery_logs_time 上从该位置之后继续
+            long lastTime = from;
+            long lastId = Long.MIN_VALUE;
+            int rows;
+            do {
+                rows = 0;
+                try (PooledConnection connection = pool.borrow()) {
+                    try {
+                        PreparedStatement statement = connection.prepareStatement("SELECT id, player_uuid, draw_time, tier, prize_id, seed, config_id " +
+                                "FROM lottery_logs WHERE draw_time >= ? AND draw_time < ? AND (draw_time > ? OR id > ?) ORDER BY draw_time, id LIMIT ?");
+                        statement.setFetchSize(fetchSize);
+                        statement.setLong(1, lastTime);
+                        statement.setLong(2, to);
+                        statement.setLong(3, lastTime);
+                        statement.setLong(4, lastId);
+                        statement.setInt(5, fetchSize);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                lastTime = resultSet.getLong("draw_time");
+                                lastId = resultSet.getLong("id");
+                                writeRow(writer, format, resultSet);
+                                rows++;
+                            }
+                        }
+                    } catch (SQLException e) {
+                        connection.markBrokenIfFatal(e);
+                        throw e;
+                    }
+                }
+                exported += rows;
+                if (rows > 0) {
+                    progress.accept(exported);
+                }
+            } while (rows == fetchSize);
+        }
+        return exported;
+    }
+
+    private static void writeRow(Writer writer, Format format, ResultSet resultSet) throws SQLException, IOException {
+        long id = resultSet.getLong("id");
+        String playerUUID = LotteryStorage.toUUID(resultSet.getBytes("player_uuid")).toString();
+        long drawTime = resultSet.getLong("draw_time");
+        String time = Instant.ofEpochMilli(drawTime).toString();
+        int tierOrdinal = resultSet.getInt("tier");
+        LotteryTier[] tiers = LotteryTier.values();
+        String tier = tierOrdinal >= 0 && tierOrdinal < tiers.length ? tiers[tierOrdinal].name() : String.valueOf(tierOrdinal);
+        int prizeId = resultSet.getInt("prize_id");
+        long seed = resultSet.getLong("seed");
+        int configId = resultSet.getInt("config_id");
+        // 所有字段都不含逗号、引号或换行，不需要转义
+        if (format == Format.CSV) {
+            writer.write(id + "," + playerUUID + "," + drawTime + "," + time + "," + tier + "," + prizeId + "," + seed + "," + configId + "\n");
+        } else {
+            writer.write("{\"id\":" + id + ",\"player_uuid\":\"" + playerUUID + "\",\"draw_time\":" + drawTime + ",\"time\":\"" + time
+                    + "\",\"tier\":\"" + tier + "\",\"prize_id\":" + prizeId + ",\"seed\":" + seed + ",\"config_id\":" + configId + "}\n");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.UUID;
+
+// 从数据库读取的一条抽奖日志及其抽奖时生效的配置快照，用于重现抽奖
+public class LotteryAuditRecord {
+
+    // 日志编号
+    private final long id;
+    // 玩家 UUID
+    private final UUID playerUUID;
+    // 抽奖时间（毫秒时间戳）
+    private final long time;
+    // 抽奖时的权限组
+    private final LotteryTier tier;
+    // 奖品编号，含义同 LotteryLogRecord
+    private final int prizeId;
+    // 本次抽奖的随机数种子
+    private final long seed;
+    // 配置快照内容，旧版本写入的日志没有快照，为 null
+    private final String configSnapshot;
+
+    public LotteryAuditRecord(long id, UUID playerUUID, long time, LotteryTier tier, int prizeId, long seed, String configSnapshot) {
+        this.id = id;
+        this.playerUUID = playerUUID;
+        this.time = time;
+        this.tier = tier;
+        this.prizeId = prizeId;
+        this.seed = seed;
+        this.configSnapshot = configSnapshot;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public LotteryTier getTier() {
+        return tier;
+    }
+
+    public int getPrizeId() {
+        return prizeId;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getConfigSnapshot() {
+        return configSnapshot;
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.List;
+
+// 一次抽奖命令的待写入结果，玩家状态和抽奖日志在同一个事务中提交
+public class LotteryDraw {
+
+    // 玩家抽奖状态
+    private final PlayerLotteryData playerData;
+    // 本次命令产生的抽奖日志，连抽时有多条
+    private final List<LotteryLogRecord> logs;
+
+    public LotteryDraw(PlayerLotteryData playerData, List<LotteryLogRecord> logs) {
+        this.playerData = playerData;
+        this.logs = logs;
+    }
+
+    public PlayerLotteryData getPlayerData() {
+        return playerData;
+    }
+
+    public List<LotteryLogRecord> getLogs() {
+        return logs;
+    }
+}
@@ -0,0 +1,35 @@
+// 从数据库读取的一条抽奖记录
+public class LotteryHistoryEntry {
+
+    // 日志编号
+    private final long id;
+    // 抽奖时间（毫秒时间戳）
+    private final long time;
+    // 抽奖时的权限组
+    private final LotteryTier tier;
+    // 奖品编号，含义同 LotteryLogRecord
+    private final int prizeId;
+
+    public LotteryHistoryEntry(long id, long time, LotteryTier tier, int prizeId) {
+        this.id = id;
+        this.time = time;
+        this.tier = tier;
+        this.prizeId = prizeId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public LotteryTier getTier() {
+        return tier;
+    }
+
+    public int getPrizeId() {
+        return prizeId;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.UUID;
+
+// 一条待写入的抽奖日志
+public class LotteryLogRecord {
+
+    // 未中奖时记录的奖品编号
+    public static final int PRIZE_NONE = -1;
+    // 保底奖励记录的奖品编号
+    public static final int PRIZE_GUARANTEE = -2;
+    // 从旧日志转换而来、奖品已不在当前配置中时记录的奖品编号
+    public static final int PRIZE_UNKNOWN = -3;
+
+    // 玩家 UUID
+    private final UUID playerUUID;
+    // 抽奖时的权限组
+    private final LotteryTier tier;
+    // 奖品在权限组奖品列表中的编号，未中奖和保底时为上面的特殊值
+    private final int prizeId;
+    // 抽奖时间（毫秒时间戳）
+    private final long time;
+    // 本次抽奖的随机数种子，保底抽奖不使用随机数，记为 0
+    private final long seed;
+    // 抽奖时生效的配置快照编号，用于重现抽奖
+    private final int configId;
+
+    public LotteryLogRecord(UUID playerUUID, LotteryTier tier, int prizeId, long time, long seed, int configId) {
+        this.playerUUID = playerUUID;
+        this.tier = tier;
+        this.prizeId = prizeId;
+        this.time = time;
+        this.seed = seed;
+        this.configId = configId;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public LotteryTier getTier() {
+        return tier;
+    }
+
+    public int getPrizeId() {
+        return prizeId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getConfigId() {
+        return configId;
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+// 抽奖各阶段的耗时和计数，所有记录操作无锁，可在任意线程调用
+public class LotteryMetrics {
+
+    // 被统计耗时的阶段
+    public enum Stage {
+        // 通过 Vault 查询权限组
+        PERMISSION_LOOKUP,
+        // 检查抽奖次数和冷却
+        ELIGIBILITY,
+        // 抽取奖品
+        SAMPLING,
+        // 渲染奖励命令并加入队列
+        REWARD_DISPATCH,
+        // 抽奖结果加入写入队列
+        PERSISTENCE,
+        // 多服共享数据库时以条件更新预占抽奖次数
+        RESERVATION,
+        // 音效、粒子和震动
+        EFFECTS,
+        // 执行单条奖励命令
+        COMMAND_EXECUTION,
+        // 存储线程上的一次数据库事务
+        DB_WRITE
+    }
+
+    // 输出分位数
+    private static final double[] QUANTILES = {0.5, 0.99};
+
+    // 各阶段的耗时直方图
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    // 抽奖总次数
+    private final LongAdder draws = new LongAdder();
+    // 保底奖励次数
+    private final LongAdder guarantees = new LongAdder();
+    // 数据库错误次数
+    private final LongAdder dbErrors = new LongAdder();
+    // 各权限组各奖品的中奖次数
+    private final Map<LotteryTier, Map<Integer, LongAdder>> wins = new EnumMap<>(LotteryTier.class);
+    // 各限量奖品因未写入数据库的发放数量达到上限而被跳过、改抽其他奖品的次数，按库存标识索引
+    private final Map<String, LongAdder> stockThrottles = new ConcurrentHashMap<>();
+    // 队列深度，按名称排序输出
+    private final Map<String, IntSupplier> queues = new ConcurrentSkipListMap<>();
+
+    public LotteryMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+        for (LotteryTier tier : LotteryTier.values()) {
+            wins.put(tier, new ConcurrentHashMap<>());
+        }
+    }
+
+    // 记录从 startNanos（System.nanoTime）到现在的耗时
+    public void record(Stage stage, long startNanos) {
+        histograms.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public void addDraws(int count) {
+        draws.add(count);
+    }
+
+    public void recordWin(LotteryTier tier, int prizeId) {
+        wins.get(tier).computeIfAbsent(prizeId, id -> new LongAdder()).increment();
+    }
+
+    public void recordStockThrottled(String stockKey) {
+        stockThrottles.computeIfAbsent(stockKey, key -> new LongAdder()).increment();
+    }
+
+    public void recordGuarantee() {
+        guarantees.increment();
+    }
+
+    public void recordDbError() {
+        dbErrors.increment();
+    }
+
+    // 注册一个队列，统计时读取其当前深度
+    public void registerQueue(String name, IntSupplier depth) {
+        queues.put(name, depth);
+    }
+
+    public long getDraws() {
+        return draws.sum();
+    }
+
+    public long getGuarantees() {
+        return guarantees.sum();
+    }
+
+    public long getDbErrors() {
+        return dbErrors.sum();
+    }
+
+    // 各权限组各奖品的中奖次数快照，按奖品编号排序
+    public Map<LotteryTier, SortedMap<Integer, Long>> getWins() {
+        Map<LotteryTier, SortedMap<Integer, Long>> snapshot = new EnumMap<>(LotteryTier.class);
+        for (Map.Entry<LotteryTier, Map<Integer, LongAdder>> tier : wins.entrySet()) {
+            SortedMap<Integer, Long> prizes = new TreeMap<>();
+            for (Map.Entry<Integer, LongAdder> prize : tier.getValue().entrySet()) {
+                prizes.put(prize.getKey(), prize.getValue().sum());
+            }
+            snapshot.put(tier.getKey(), prizes);
+        }
+        return snapshot;
+    }
+
+    // 各限量奖品被暂停发放的次数快照，按库存标识排序
+    public SortedMap<String, Long> getStockThrottles() {
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> stock : stockThrottles.entrySet()) {
+            snapshot.put(stock.getKey(), stock.getValue().sum());
+        }
+        return snapshot;
+    }
+
+    // 各队列的当前深度
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (Map.Entry<String, IntSupplier> queue : queues.entrySet()) {
+            depths.put(queue.getKey(), queue.getValue().getAsInt());
+        }
+        return depths;
+    }
+
+    // 清空耗时和计数，队列深度不受影响
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        draws.reset();
+        guarantees.reset();
+        dbErrors.reset();
+        for (Map<Integer, LongAdder> prizes : wins.values()) {
+            prizes.clear();
+        }
+        stockThrottles.clear();
+    }
+
+    // 以 Prometheus 文本格式写入文件，先写临时文件再替换，避免采集到写了一半的文件
+    public void writePrometheus(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("# HELP lottery_stage_latency_seconds Latency of each draw stage.\n");
+            writer.write("# TYPE lottery_stage_latency_seconds summary\n");
+            for (Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+                String stage = entry.getKey().name().toLowerCase(Locale.ROOT);
+                LatencyHistogram histogram = entry.getValue();
+                for (double quantile : QUANTILES) {
+                    writer.write("lottery_stage_latency_seconds{stage=\"" + stage + "\",quantile=\"" + quantile + "\"} "
+                            + seconds(histogram.getPercentile(quantile)) + "\n");
+                }
+                writer.write("lottery_stage_latency_seconds{stage=\"" + stage + "\",quantile=\"1.0\"} " + seconds(histogram.getMax()) + "\n");
+                writer.write("lottery_stage_latency_seconds_sum{stage=\"" + stage + "\"} " + seconds(histogram.getSum()) + "\n");
+                writer.write("lottery_stage_latency_seconds_count{stage=\"" + stage + "\"} " + histogram.getCount() + "\n");
+            }
+            writer.write("# HELP lottery_draws_total Draws performed.\n");
+            writer.write("# TYPE lottery_draws_total counter\n");
+            writer.write("lottery_draws_total " + getDraws() + "\n");
+            writer.write("# HELP lottery_wins_total Wins per tier and prize id.\n");
+            writer.write("# TYPE lottery_wins_total counter\n");
+            for (Map.Entry<LotteryTier, SortedMap<Integer, Long>> tier : getWins().entrySet()) {
+                for (Map.Entry<Integer, Long> prize : tier.getValue().entrySet()) {
+                    writer.write("lottery_wins_total{tier=\"" + tier.getKey().name().toLowerCase(Locale.ROOT)
+                            + "\",prize=\"" + prize.getKey() + "\"} " + prize.getValue() + "\n");
+                }
+            }
+            writer.write("# HELP lottery_guarantees_total Guarantee rewards granted.\n");
+            writer.write("# TYPE lottery_guarantees_total counter\n");
+            writer.write("lottery_guarantees_total " + getGuarantees() + "\n");
+            writer.write("# HELP lottery_stock_throttled_total Draws that skipped a limited prize while its claims were waiting to be written.\n");
+            writer.write("# TYPE lottery_stock_throttled_total counter\n");
+            for (Map.Entry<String, Long> stock : getStockThrottles().entrySet()) {
+                writer.write("lottery_stock_throttled_total{stock=\"" + stock.getKey() + "\"} " + stock.getValue() + "\n");
+            }
+            writer.write("# HELP lottery_db_errors_total Failed database operations.\n");
+            writer.write("# TYPE lottery_db_errors_total counter\n");
+            writer.write("lottery_db_errors_total " + getDbErrors() + "\n");
+            writer.write("# HELP lottery_queue_depth Items waiting in each queue.\n");
+            writer.write("# TYPE lottery_queue_depth gauge\n");
+            for (Map.Entry<String, Integer> queue : getQueueDepths().entrySet()) {
+                writer.write("lottery_queue_depth{queue=\"" + queue.getKey() + "\"} " + queue.getValue() + "\n");
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+}
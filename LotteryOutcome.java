@@ -0,0 +1,103 @@
+import java.util.List;
+import java.util.Map;
+
+// 一次抽奖命令的计算结果，包括发放的奖励、日志和抽奖后的玩家状态，确认写入后才应用到玩家
+public class LotteryOutcome {
+
+    // 奖励命令及执行次数
+    private final Map<CommandTemplate, Integer> rewards;
+    // 中奖命令，用于生成奖品预览
+    private final List<String> wonCommands;
+    // 每次抽奖的日志
+    private final List<LotteryLogRecord> logs;
+    // 中奖次数，包括保底
+    private final int wins;
+    // 本次是否触发了保底
+    private final boolean guaranteeTriggered;
+    // 抽奖后的抽奖次数
+    private final int lotteryCount;
+    // 本次是否使用保底并重置了抽奖次数
+    private final boolean lotteryCountReset;
+    // 抽奖次数的增量，重置时为重置后的增量
+    private final int lotteryCountIncrement;
+    // 抽奖后是否处于保底状态
+    private final boolean guarantee;
+    // 抽奖后统计周期内的抽奖次数
+    private final int windowCount;
+    // 抽奖时的统计周期编号
+    private final long windowEpoch;
+    // 抽奖时间
+    private final long time;
+    // 本次抽中限量奖品时的库存发放记录
+    private final List<PrizeStock.Claim> stockClaims;
+
+    public LotteryOutcome(Map<CommandTemplate, Integer> rewards, List<String> wonCommands, List<LotteryLogRecord> logs, int wins,
+                          boolean guaranteeTriggered, int lotteryCount, boolean lotteryCountReset, int lotteryCountIncrement,
+                          boolean guarantee, int windowCount, long windowEpoch, long time, List<PrizeStock.Claim> stockClaims) {
+        this.rewards = rewards;
+        this.wonCommands = wonCommands;
+        this.logs = logs;
+        this.wins = wins;
+        this.guaranteeTriggered = guaranteeTriggered;
+        this.lotteryCount = lotteryCount;
+        this.lotteryCountReset = lotteryCountReset;
+        this.lotteryCountIncrement = lotteryCountIncrement;
+        this.guarantee = guarantee;
+        this.windowCount = windowCount;
+        this.windowEpoch = windowEpoch;
+        this.time = time;
+        this.stockClaims = stockClaims;
+    }
+
+    public Map<CommandTemplate, Integer> getRewards() {
+        return rewards;
+    }
+
+    public List<String> getWonCommands() {
+        return wonCommands;
+    }
+
+    public List<LotteryLogRecord> getLogs() {
+        return logs;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public boolean isGuaranteeTriggered() {
+        return guaranteeTriggered;
+    }
+
+    public int getLotteryCount() {
+        return lotteryCount;
+    }
+
+    public boolean isLotteryCountReset() {
+        return lotteryCountReset;
+    }
+
+    public int getLotteryCountIncrement() {
+        return lotteryCountIncrement;
+    }
+
+    public boolean isGuarantee() {
+        return guarantee;
+    }
+
+    public int getWindowCount() {
+        return windowCount;
+    }
+
+    public long getWindowEpoch() {
+        return windowEpoch;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public List<PrizeStock.Claim> getStockClaims() {
+        return stockClaims;
+    }
+}
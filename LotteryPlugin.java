@@ -1,16 +1,25 @@
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.java.JavaPlugin;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
@@ -18,25 +27,70 @@ import org.bukkit.util.Vector;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 // 抽奖插件主类，继承自 JavaPlugin
-public class LotteryPlugin extends JavaPlugin {
-
-    // 配置文件对象
-    private FileConfiguration config;
-    // 语言文件配置
-    private Map<String, FileConfiguration> languageConfigs;
-    // 随机数生成器
-    private Random random;
+public class LotteryPlugin extends JavaPlugin implements Listener {
+
+    // 数据库初始化失败后的首次重试间隔（毫秒）
+    private static final long STARTUP_RETRY_MIN_DELAY = 1000;
+    // 数据库初始化重试的最长间隔（毫秒）
+    private static final long STARTUP_RETRY_MAX_DELAY = 60_000;
+
+    // 配置文件对象，重载配置后替换
+    private volatile FileConfiguration config;
+    // 预编译的语言消息模板，按小写语言代码索引
+    private Map<String, Map<String, MessageTemplate>> languageTemplates;
+    // 玩家当前语言对应的消息模板缓存
+    private final Map<UUID, Map<String, MessageTemplate>> playerLanguages = new ConcurrentHashMap<>();
+    // 每个线程独立的随机数生成器，只用于生成每次抽奖的种子，线程之间不争用同一个种子
+    private static final ThreadLocal<SplittableRandom> RANDOM = ThreadLocal.withInitial(SplittableRandom::new);
     // Vault 权限管理对象
     private Permission permission;
-    // 数据库连接
-    private Connection connection;
-    // 存储方式，sqlite 或 mysql
-    private String storageType;
+    // 玩家权限组缓存
+    private PermissionTierCache tierCache;
+    // 限量奖品库存，重载配置后沿用
+    private PrizeStockRegistry prizeStocks;
+    // 当前生效的抽奖配置快照
+    private final AtomicReference<LotterySettings> settings = new AtomicReference<>();
+    // 奖励命令队列
+    private RewardDispatcher rewardDispatcher;
+    // 数据存储层
+    private LotteryStorage storage;
+    // 在线玩家抽奖状态缓存
+    private Map<UUID, PlayerLotteryData> playerDataCache;
+    // 各阶段耗时和计数统计
+    private final LotteryMetrics metrics = new LotteryMetrics();
+    // 正在等待数据库加载数据或确认抽奖的玩家，仅在主线程访问
+    private final Set<UUID> pendingReservations = new HashSet<>();
+    // 每个命令发送者当前查看的抽奖记录翻页游标
+    private final Map<String, HistoryCursor> historyCursors = new ConcurrentHashMap<>();
+    // 是否有模拟抽奖正在进行，同一时间只运行一次
+    private final AtomicBoolean simulationRunning = new AtomicBoolean();
+    // 是否有日志导出正在进行，同一时间只运行一次
+    private final AtomicBoolean exportRunning = new AtomicBoolean();
+    // 是否有存储迁移正在进行，同一时间只运行一次
+    private final AtomicBoolean migrationRunning = new AtomicBoolean();
+    // 数据库初始化和在线玩家数据预加载是否已完成，完成前暂停抽奖和占位符
+    private volatile boolean ready;
+    // 数据库就绪前登录的玩家，就绪后再预加载他们的数据
+    private final Set<UUID> pendingPreloads = ConcurrentHashMap.newKeySet();
+    // 累计抽奖次数排行榜
+    private Leaderboard drawLeaderboard;
+    // 本周抽中大奖次数排行榜
+    private Leaderboard jackpotLeaderboard;
+    // 曾进入过服务器的玩家名称（小写）到 UUID 的映射，转换旧日志时在存储线程上按需创建
+    private Map<String, UUID> legacyPlayerNames;
 
     @Override
     public void onEnable() {
@@ -44,78 +98,798 @@ public class LotteryPlugin extends JavaPlugin {
         saveDefaultConfig();
         // 获取配置文件对象
         config = getConfig();
-        // 初始化随机数生成器
-        random = new Random();
         // 加载语言文件
         loadLanguageConfigs();
+        // 构建抽奖配置快照
+        prizeStocks = new PrizeStockRegistry(config.getInt("stock-oversell-margin", 3));
+        // 限量奖品等待写入时抽中会改抽其他奖品，计入统计以便发现概率偏移
+        prizeStocks.setThrottleListener(metrics::recordStockThrottled);
+        settings.set(LotterySettings.load(config, prizeStocks, getLogger()));
         // 检查 Vault 插件是否已安装
         if (Bukkit.getPluginManager().getPlugin("Vault") != null) {
             permission = getServer().getServicesManager().getRegistration(Permission.class).getProvider();
         }
+        // 初始化权限组缓存，并定时刷新已过期的缓存
+        tierCache = new PermissionTierCache(permission, Math.max(1, config.getLong("permission-cache-ttl", 30)) * 1000, metrics);
+        Bukkit.getScheduler().runTaskTimer(this, () -> tierCache.refreshExpired(Bukkit.getOnlinePlayers(), settings.get()), 20, 20);
         // 检查 PlaceholderAPI 插件是否已安装
-        if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
+        boolean placeholderApiEnabled = Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null;
+        if (placeholderApiEnabled) {
             // 注册 PlaceholderAPI 钩子
             new PlaceholderHook(this).register();
         }
-        // 初始化数据库连接
-        initDatabase();
-        // 创建必要的数据库表
-        createTables();
+        // 启动奖励命令队列
+        rewardDispatcher = new RewardDispatcher(this, placeholderApiEnabled, config.getInt("reward-commands-per-tick", 20), metrics);
+        rewardDispatcher.start();
+        // 初始化玩家抽奖状态缓存
+        playerDataCache = new ConcurrentHashMap<>();
+        // 排行榜在数据库就绪后于后台加载，加载期间的增量在加载完成后合并
+        int leaderboardSize = config.getInt("leaderboard-size", 10);
+        drawLeaderboard = new Leaderboard(leaderboardSize, ResetPeriod.NEVER);
+        jackpotLeaderboard = new Leaderboard(leaderboardSize, ResetPeriod.WEEKLY);
+        // 在存储线程上连接数据库，不阻塞服务器启动，完成前抽奖命令和占位符返回未就绪
+        storage = new LotteryStorage(this, config, metrics);
+        storage.execute(() -> initializeStorage(STARTUP_RETRY_MIN_DELAY));
+        // 注册玩家登录、退出事件监听
+        getServer().getPluginManager().registerEvents(this, this);
+        // 在存储线程上定时写回玩家数据
+        storage.scheduleWithFixedDelay(this::flushPlayerData, Math.max(1, config.getLong("player-data-flush-interval", 5)) * 1000);
+        // 统计各队列深度，并定时输出 Prometheus 格式的统计文件
+        metrics.registerQueue("draw_log", storage::getLogQueueSize);
+        metrics.registerQueue("reward_commands", rewardDispatcher::getQueueSize);
+        long metricsInterval = config.getLong("metrics-file-interval", 15);
+        if (metricsInterval > 0) {
+            File metricsFile = new File(getDataFolder(), "metrics.prom");
+            Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
+                try {
+                    metrics.writePrometheus(metricsFile);
+                } catch (IOException e) {
+                    getLogger().severe("无法写入统计文件: " + e.getMessage());
+                }
+            }, metricsInterval * 20, metricsInterval * 20);
+        }
         // 输出插件启用信息到控制台
         getLogger().info("Lottery plugin has been enabled!");
     }
 
+    // 在存储线程上初始化数据库，失败时按指数退避重试，成功后预加载在线玩家的数据
+    private void initializeStorage(long retryDelayMillis) {
+        if (!storage.initDatabase() || !storage.createTables()) {
+            getLogger().warning("数据库尚未就绪，" + retryDelayMillis / 1000 + " 秒后重试");
+            storage.schedule(() -> initializeStorage(Math.min(retryDelayMillis * 2, STARTUP_RETRY_MAX_DELAY)), retryDelayMillis);
+            return;
+        }
+        // 保存配置快照后重新发布配置，抽奖日志记录快照编号用于重现抽奖；就绪前不接受重载，config 与当前配置一致
+        LotterySettings current = LotterySettings.load(config, prizeStocks, getLogger(), storage::saveConfigSnapshot);
+        if (current.getSnapshotId() == 0) {
+            getLogger().warning("数据库尚未就绪，" + retryDelayMillis / 1000 + " 秒后重试");
+            storage.schedule(() -> initializeStorage(Math.min(retryDelayMillis * 2, STARTUP_RETRY_MAX_DELAY)), retryDelayMillis);
+            return;
+        }
+        settings.set(current);
+        // 从数据库恢复限量奖品的发放数量
+        storage.loadPrizeStock(prizeStocks);
+        // 定时归档过期的抽奖日志
+        storage.startLogRetention();
+        // 把升级前的旧日志分批转换到新日志表
+        storage.startLegacyLogConversion(current, this::resolveLegacyPlayer);
+        // 在主线程上获取在线玩家列表，再在异步线程中加载他们的抽奖数据
+        Bukkit.getScheduler().runTask(this, () -> {
+            List<UUID> onlinePlayers = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                onlinePlayers.add(player.getUniqueId());
+            }
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+                for (UUID playerUUID : onlinePlayers) {
+                    preloadPlayerData(playerUUID);
+                }
+                // 就绪前本服没有抽奖，之后的抽奖时间都不早于 readyTime
+                long readyTime = System.currentTimeMillis();
+                ready = true;
+                // 就绪前登录、登录时跳过预加载的玩家，与登录线程竞争移除，每名玩家只加载一次
+                for (UUID playerUUID : pendingPreloads) {
+                    if (pendingPreloads.remove(playerUUID)) {
+                        preloadPlayerData(playerUUID);
+                    }
+                }
+                getLogger().info("数据库已就绪");
+                loadDrawLeaderboard(STARTUP_RETRY_MIN_DELAY);
+                loadJackpotLeaderboard(current, readyTime, STARTUP_RETRY_MIN_DELAY);
+            });
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 旧日志只记录了玩家名称，按本服玩家数据查找 UUID，不访问网络；找不到时使用离线模式的 UUID
+    private UUID resolveLegacyPlayer(String name) {
+        if (legacyPlayerNames == null) {
+            Map<String, UUID> names = new HashMap<>();
+            for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+                if (player.getName() != null) {
+                    names.put(player.getName().toLowerCase(Locale.ROOT), player.getUniqueId());
+                }
+            }
+            legacyPlayerNames = names;
+        }
+        UUID playerUUID = legacyPlayerNames.get(name.toLowerCase(Locale.ROOT));
+        return playerUUID != null ? playerUUID : UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 在异步线程中加载累计抽奖排行榜，失败时按指数退避重试，成功前的增量由排行榜保留
+    // 增量以抽奖后的累计抽奖次数为位置，不超过数据库中累计次数的增量已写入数据库
+    private void loadDrawLeaderboard(long retryDelayMillis) {
+        Map<UUID, Long> totals = storage.loadDrawTotals();
+        if (totals == null) {
+            Bukkit.getScheduler().runTaskLaterAsynchronously(this, () -> loadDrawLeaderboard(Math.min(retryDelayMillis * 2, STARTUP_RETRY_MAX_DELAY)),
+                    retryDelayMillis / 50);
+            return;
+        }
+        drawLeaderboard.load(drawLeaderboard.getPeriod().currentEpoch(), totals, playerUUID -> totals.getOrDefault(playerUUID, 0L), LotteryPlugin::getOfflinePlayerName);
+    }
+
+    // 在异步线程中加载本周大奖排行榜，失败时按指数退避重试
+    // 只统计就绪前的日志，增量以抽奖时间为位置，就绪后的抽奖时间都不早于 readyTime，都不在统计结果中
+    private void loadJackpotLeaderboard(LotterySettings settings, long readyTime, long retryDelayMillis) {
+        ResetPeriod period = jackpotLeaderboard.getPeriod();
+        long epoch = period.epochOf(readyTime);
+        Map<UUID, Long> jackpots = storage.countDraws(period.startOf(epoch), readyTime, (tier, prizeId) -> {
+            Prize prize = settings.getPrizes(tier).getPrize(prizeId);
+            return prize != null && prize.isJackpot();
+        });
+        if (jackpots == null) {
+            Bukkit.getScheduler().runTaskLaterAsynchronously(this, () -> loadJackpotLeaderboard(settings, readyTime, Math.min(retryDelayMillis * 2, STARTUP_RETRY_MAX_DELAY)),
+                    retryDelayMillis / 50);
+            return;
+        }
+        jackpotLeaderboard.load(epoch, jackpots, playerUUID -> readyTime - 1, LotteryPlugin::getOfflinePlayerName);
+    }
+
+    // 排行榜只为前几名查询玩家名称
+    private static String getOfflinePlayerName(UUID playerUUID) {
+        return Bukkit.getOfflinePlayer(playerUUID).getName();
+    }
+
+    public Leaderboard getDrawLeaderboard() {
+        return drawLeaderboard;
+    }
+
+    public Leaderboard getJackpotLeaderboard() {
+        return jackpotLeaderboard;
+    }
+
     @Override
     public void onDisable() {
-        // 关闭数据库连接
-        closeDatabaseConnection();
+        // 执行尚未执行的奖励命令
+        if (rewardDispatcher != null) {
+            rewardDispatcher.drain();
+        }
+        if (storage != null) {
+            // 将尚未写回的玩家数据写入数据库
+            storage.execute(this::flushPlayerData);
+            // 写完剩余日志后关闭数据库连接
+            storage.close();
+        }
         // 输出插件禁用信息到控制台
         getLogger().info("Lottery plugin has been disabled!");
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command cmd, String label, String[] args) {
-        // 检查命令是否为 /lottery 且发送者为玩家
-        if (cmd.getName().equalsIgnoreCase("lottery") && sender instanceof Player) {
+        if (!cmd.getName().equalsIgnoreCase("lottery")) {
+            return false;
+        }
+        // 重载配置
+        if (args.length > 0 && args[0].equalsIgnoreCase("reload")) {
+            if (!sender.hasPermission("lottery.reload")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            // 就绪前无法保存配置快照，初始化时会按 config.yml 重新发布配置
+            if (!ready) {
+                sendMessage(sender, "lottery-not-ready");
+                return true;
+            }
+            reloadSettings(sender);
+            return true;
+        }
+        // 查看或清空统计
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("lottery.stats")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                metrics.reset();
+                sendMessage(sender, "lottery-stats-reset");
+            } else {
+                showStats(sender);
+            }
+            return true;
+        }
+        // 数据库尚未就绪时，除模拟抽奖外的命令都需要访问数据库
+        if (!ready && !(args.length > 0 && args[0].equalsIgnoreCase("simulate"))) {
+            sendMessage(sender, "lottery-not-ready");
+            return true;
+        }
+        // 查询抽奖记录
+        if (args.length > 0 && args[0].equalsIgnoreCase("history")) {
+            showHistory(sender, args);
+            return true;
+        }
+        // 模拟抽奖，检查奖品表的实际分布
+        if (args.length > 0 && args[0].equalsIgnoreCase("simulate")) {
+            if (!sender.hasPermission("lottery.simulate")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            simulate(sender, args);
+            return true;
+        }
+        // 导出抽奖日志
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            if (!sender.hasPermission("lottery.export")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            exportLogs(sender, args);
+            return true;
+        }
+        // 在 SQLite 和 MySQL 之间迁移数据
+        if (args.length > 0 && args[0].equalsIgnoreCase("migrate")) {
+            if (!sender.hasPermission("lottery.migrate")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            migrateStorage(sender, args);
+            return true;
+        }
+        // 按日志中的种子和配置快照重现一次抽奖
+        if (args.length > 0 && args[0].equalsIgnoreCase("verify")) {
+            if (!sender.hasPermission("lottery.verify")) {
+                sendMessage(sender, "no-permission");
+                return true;
+            }
+            verifyDraw(sender, args);
+            return true;
+        }
+        // 检查发送者是否为玩家
+        if (sender instanceof Player) {
             Player player = (Player) sender;
-            // 检查玩家是否可以抽奖
-            if (canPlayerLottery(player)) {
-                // 播放抽奖音效
-                playLotterySound(player);
-                // 播放抽奖粒子特效
-                playLotteryParticles(player);
-                // 模拟屏幕震动
-                simulateScreenShake(player);
-                // 执行抽奖操作
-                performLottery(player);
-                // 记录玩家抽奖次数
-                recordLotteryCount(player);
-                // 记录玩家上次抽奖时间
-                recordLastLotteryTime(player);
+            // 本次抽奖全程使用同一份配置快照
+            LotterySettings settings = this.settings.get();
+            // 解析连抽次数，/lottery <次数>
+            int draws = 1;
+            if (args.length > 0) {
+                try {
+                    draws = Integer.parseInt(args[0]);
+                } catch (NumberFormatException e) {
+                    draws = 0;
+                }
+                if (draws < 1 || draws > settings.getMaxMultiDraw()) {
+                    sendMessage(player, "lottery-invalid-draws", String.valueOf(settings.getMaxMultiDraw()));
+                    return true;
+                }
             }
+            startLottery(player, settings, draws, true);
             return true;
         }
         return false;
     }
 
-    private boolean canPlayerLottery(Player player) {
-        UUID playerUUID = player.getUniqueId();
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUUID = event.getUniqueId();
+        if (!ready) {
+            // 数据库未就绪时记下玩家，就绪后统一预加载
+            pendingPreloads.add(playerUUID);
+            // 就绪恰好在记下之前完成时，队列可能已经处理过，由登录线程自己加载
+            if (!ready || !pendingPreloads.remove(playerUUID)) {
+                return;
+            }
+        }
+        preloadPlayerData(playerUUID);
+    }
+
+    // 在异步线程中预先加载玩家抽奖数据，避免在主线程查询数据库；加载失败时在首次抽奖时重试
+    // 加载的数据为离线，玩家进入服务器时标记为在线；加载完成时玩家已经进入的，回到主线程补上标记
+    private void preloadPlayerData(UUID playerUUID) {
+        if (getPlayerData(playerUUID) != null) {
+            Bukkit.getScheduler().runTask(this, () -> {
+                if (Bukkit.getOfflinePlayer(playerUUID).isOnline()) {
+                    markOnline(playerUUID);
+                }
+            });
+        }
+    }
+
+    // 在主线程上把在线玩家缓存中的数据标记为在线，不在缓存中时不加载，首次抽奖时再加载
+    // 定时写回任务可能在读取后把离线的数据移出缓存，标记后放回；移除发生在标记之后时由写回任务放回
+    private void markOnline(UUID playerUUID) {
+        PlayerLotteryData data = playerDataCache.get(playerUUID);
+        if (data == null) {
+            return;
+        }
+        data.setOnline(true);
+        PlayerLotteryData current = playerDataCache.putIfAbsent(playerUUID, data);
+        if (current != null && current != data) {
+            // 移出后已经重新加载了一份，标记新加载的数据
+            current.setOnline(true);
+        }
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // 玩家进入时重新查询权限组
+        tierCache.refresh(event.getPlayer(), settings.get());
+        markOnline(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // 部分权限插件按世界分配权限，切换世界时重新查询权限组
+        tierCache.refresh(event.getPlayer(), settings.get());
+    }
+
+    @EventHandler
+    public void onPlayerLocaleChange(PlayerLocaleChangeEvent event) {
+        // 客户端切换语言时更新消息模板缓存
+        playerLanguages.put(event.getPlayer().getUniqueId(), getLanguageTemplates(event.getLocale()));
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        tierCache.invalidate(event.getPlayer().getUniqueId());
+        pendingPreloads.remove(event.getPlayer().getUniqueId());
+        playerLanguages.remove(event.getPlayer().getUniqueId());
+        historyCursors.remove(event.getPlayer().getName());
+        PlayerLotteryData data = playerDataCache.get(event.getPlayer().getUniqueId());
+        if (data != null) {
+            // 标记为离线，数据写回后由定时任务移出缓存
+            data.setOnline(false);
+        }
+    }
+
+    private void reloadSettings(CommandSender sender) {
+        File configFile = new File(getDataFolder(), "config.yml");
+        // 在异步线程中读取并校验配置，完成后原子替换快照
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            YamlConfiguration reloadedConfig = new YamlConfiguration();
+            try {
+                reloadedConfig.load(configFile);
+            } catch (IOException | InvalidConfigurationException e) {
+                getLogger().severe("无法重载配置文件: " + e.getMessage());
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-reload-failed"));
+                return;
+            }
+            // 发布前保存配置快照，保存失败时保留原配置，之后的抽奖仍可重现
+            LotterySettings reloadedSettings = LotterySettings.load(reloadedConfig, prizeStocks, getLogger(), storage::saveConfigSnapshot);
+            if (reloadedSettings.getSnapshotId() == 0) {
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-reload-failed"));
+                return;
+            }
+            config = reloadedConfig;
+            settings.set(reloadedSettings);
+            Bukkit.getScheduler().runTask(this, () -> {
+                // 权限名称可能已修改，重新查询所有在线玩家的权限组
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    tierCache.refresh(player, reloadedSettings);
+                }
+                sendMessage(sender, "lottery-reloaded");
+            });
+        });
+    }
+
+    // 各阶段耗时以毫秒显示
+    private void showStats(CommandSender sender) {
+        sendMessage(sender, "lottery-stats-header");
+        for (LotteryMetrics.Stage stage : LotteryMetrics.Stage.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(stage);
+            sendMessage(sender, "lottery-stats-stage", stage.name().toLowerCase(Locale.ROOT), String.valueOf(histogram.getCount()),
+                    formatMillis(histogram.getPercentile(0.5)), formatMillis(histogram.getPercentile(0.99)), formatMillis(histogram.getMax()));
+        }
+        sendMessage(sender, "lottery-stats-counter", "draws", String.valueOf(metrics.getDraws()));
+        sendMessage(sender, "lottery-stats-counter", "guarantees", String.valueOf(metrics.getGuarantees()));
+        sendMessage(sender, "lottery-stats-counter", "db_errors", String.valueOf(metrics.getDbErrors()));
+        for (Map.Entry<LotteryTier, SortedMap<Integer, Long>> tier : metrics.getWins().entrySet()) {
+            for (Map.Entry<Integer, Long> prize : tier.getValue().entrySet()) {
+                sendMessage(sender, "lottery-stats-counter", "wins " + tier.getKey().name().toLowerCase(Locale.ROOT) + "#" + prize.getKey(),
+                        String.valueOf(prize.getValue()));
+            }
+        }
+        for (Map.Entry<String, Long> stock : metrics.getStockThrottles().entrySet()) {
+            sendMessage(sender, "lottery-stats-counter", "stock_throttled " + stock.getKey(), String.valueOf(stock.getValue()));
+        }
+        for (Map.Entry<String, Integer> queue : metrics.getQueueDepths().entrySet()) {
+            sendMessage(sender, "lottery-stats-queue", queue.getKey(), String.valueOf(queue.getValue()));
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    // /lottery simulate <权限组> <次数>，在异步线程中用 fork-join 模拟抽奖，不发放奖励
+    private void simulate(CommandSender sender, String[] args) {
+        LotterySettings settings = this.settings.get();
+        long maxDraws = settings.getSimulateMaxDraws();
+        LotteryTier tier = null;
+        long draws = 0;
+        if (args.length >= 3) {
+            try {
+                tier = LotteryTier.valueOf(args[1].toUpperCase(Locale.ROOT));
+                draws = Long.parseLong(args[2]);
+            } catch (IllegalArgumentException e) {
+                tier = null;
+            }
+        }
+        if (tier == null || draws < 1 || draws > maxDraws) {
+            sendMessage(sender, "lottery-simulate-usage", String.valueOf(maxDraws));
+            return;
+        }
+        if (!simulationRunning.compareAndSet(false, true)) {
+            sendMessage(sender, "lottery-simulate-running");
+            return;
+        }
+        LotteryTier simulatedTier = tier;
+        long simulatedDraws = draws;
+        PrizeTable prizes = settings.getPrizes(tier);
+        sendMessage(sender, "lottery-simulate-started", tier.name(), String.valueOf(draws));
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            long start = System.nanoTime();
+            LotterySimulation.Result result;
+            try {
+                result = new LotterySimulation(prizes, settings.getGuaranteeCount())
+                        .run(ForkJoinPool.commonPool(), simulatedDraws, new SplittableRandom().nextLong());
+            } finally {
+                simulationRunning.set(false);
+            }
+            long elapsed = System.nanoTime() - start;
+            Bukkit.getScheduler().runTask(this, () -> sendSimulation(sender, simulatedTier, prizes, result, elapsed));
+        });
+    }
+
+    // /lottery export <开始日期> <结束日期> <csv|ndjson>[.gz]，日期格式为 yyyy-MM-dd，包含结束日期当天
+    private void exportLogs(CommandSender sender, String[] args) {
+        long from;
+        long to;
+        LogExporter.Format format;
+        boolean gzip;
+        try {
+            if (args.length < 4) {
+                throw new IllegalArgumentException();
+            }
+            from = LocalDate.parse(args[1]).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            to = LocalDate.parse(args[2]).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            String formatName = args[3].toLowerCase(Locale.ROOT);
+            gzip = formatName.endsWith(".gz");
+            format = LogExporter.Format.valueOf((gzip ? formatName.substring(0, formatName.length() - 3) : formatName).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendMessage(sender, "lottery-export-usage");
+            return;
+        }
+        if (from >= to) {
+            sendMessage(sender, "lottery-export-usage");
+            return;
+        }
+        if (!exportRunning.compareAndSet(false, true)) {
+            sendMessage(sender, "lottery-export-running");
+            return;
+        }
+        File exportFolder = new File(getDataFolder(), "exports");
+        if (!exportFolder.exists()) {
+            exportFolder.mkdirs();
+        }
+        File file = new File(exportFolder, "lottery_logs-" + args[1] + "-" + args[2] + "-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "." + args[3].toLowerCase(Locale.ROOT));
+        long exportFrom = from;
+        long exportTo = to;
+        LogExporter.Format exportFormat = format;
+        boolean exportGzip = gzip;
+        int fetchSize = settings.get().getLogExportFetchSize();
+        sendMessage(sender, "lottery-export-started", file.getName());
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            long start = System.currentTimeMillis();
+            // 最多每 5 秒报告一次进度
+            long[] lastReport = {start};
+            try {
+                long rows = storage.createLogExporter(fetchSize).export(exportFrom, exportTo, exportFormat, exportGzip, file, exported -> {
+                    long now = System.currentTimeMillis();
+                    if (now - lastReport[0] >= 5000) {
+                        lastReport[0] = now;
+                        Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-export-progress", String.valueOf(exported)));
+                    }
+                });
+                long elapsed = System.currentTimeMillis() - start;
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-export-done", file.getName(), String.valueOf(rows), String.valueOf(elapsed / 1000)));
+            } catch (SQLException | IOException e) {
+                getLogger().severe("无法导出抽奖日志: " + e.getMessage());
+                // 删除不完整的导出文件
+                file.delete();
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-export-failed"));
+            } finally {
+                exportRunning.set(false);
+            }
+        });
+    }
+
+    // /lottery migrate <sqlite|mysql> <sqlite|mysql>，源为正在使用的存储方式，目标使用 config.yml 中的连接配置
+    // 中断后再次执行会从上次的进度继续，最后核对数据时暂停抽奖，完成后需要修改 storage-type 并重启服务器
+    private void migrateStorage(CommandSender sender, String[] args) {
+        if (args.length < 3 || !isStorageType(args[1]) || !isStorageType(args[2]) || args[1].equalsIgnoreCase(args[2])) {
+            sendMessage(sender, "lottery-migrate-usage");
+            return;
+        }
+        String from = args[1].toLowerCase(Locale.ROOT);
+        String to = args[2].toLowerCase(Locale.ROOT);
+        if (to.equalsIgnoreCase(storage.getStorageType())) {
+            // 正在使用的数据库仍在写入，复制进去的数据会与之后的抽奖混在一起
+            sendMessage(sender, "lottery-migrate-target-active", to);
+            return;
+        }
+        if (!migrationRunning.compareAndSet(false, true)) {
+            sendMessage(sender, "lottery-migrate-running");
+            return;
+        }
+        int chunkSize = settings.get().getMigrateChunkSize();
+        sendMessage(sender, "lottery-migrate-started", from, to);
+        // 在异步线程中复制，每轮复制前由存储线程写回内存中的玩家数据
+        // 源和目标不同且目标不是正在使用的存储方式，源就是正在使用的存储方式
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            long start = System.currentTimeMillis();
+            // 最多每 5 秒报告一次进度
+            long[] lastReport = {start};
+            try {
+                List<StorageMigrator.TableResult> results = storage.migrateStorage(to, chunkSize, this::flushPlayerData, (table, copied) -> {
+                    long now = System.currentTimeMillis();
+                    if (now - lastReport[0] >= 5000) {
+                        lastReport[0] = now;
+                        Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-migrate-progress", table, String.valueOf(copied)));
+                    }
+                });
+                long elapsed = System.currentTimeMillis() - start;
+                Bukkit.getScheduler().runTask(this, () -> {
+                    boolean verified = true;
+                    for (StorageMigrator.TableResult result : results) {
+                        verified &= result.isVerified();
+                        sendMessage(sender, result.isVerified() ? "lottery-migrate-table-verified" : "lottery-migrate-table-mismatch",
+                                result.getTable(), String.valueOf(result.getSourceRows()), String.valueOf(result.getTargetRows()),
+                                result.getSourceChecksum(), result.getTargetChecksum());
+                    }
+                    sendMessage(sender, verified ? "lottery-migrate-done" : "lottery-migrate-incomplete", to, String.valueOf(elapsed / 1000));
+                });
+            } catch (SQLException e) {
+                getLogger().severe("无法迁移数据: " + e.getMessage());
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-migrate-failed"));
+            } finally {
+                migrationRunning.set(false);
+            }
+        });
+    }
+
+    private static boolean isStorageType(String type) {
+        return type.equalsIgnoreCase("sqlite") || type.equalsIgnoreCase("mysql");
+    }
+
+    // /lottery verify <日志编号>，在异步线程中读取日志和配置快照并重现抽奖
+    private void verifyDraw(CommandSender sender, String[] args) {
+        long drawId;
+        try {
+            drawId = args.length >= 2 ? Long.parseLong(args[1]) : 0;
+        } catch (NumberFormatException e) {
+            drawId = 0;
+        }
+        // 从旧日志转换而来的记录编号为负数
+        if (drawId == 0) {
+            sendMessage(sender, "lottery-verify-usage");
+            return;
+        }
+        long id = drawId;
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            List<LotteryAuditRecord> records = storage.loadAuditRecord(id);
+            if (records == null || records.isEmpty()) {
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, records == null ? "lottery-verify-failed" : "lottery-verify-not-found", String.valueOf(id)));
+                return;
+            }
+            LotteryAuditRecord record = records.get(0);
+            OfflinePlayer player = Bukkit.getOfflinePlayer(record.getPlayerUUID());
+            String playerName = player.getName() != null ? player.getName() : record.getPlayerUUID().toString();
+            LotterySettings snapshot = null;
+            if (record.getConfigSnapshot() != null) {
+                YamlConfiguration snapshotConfig = new YamlConfiguration();
+                try {
+                    snapshotConfig.loadFromString(record.getConfigSnapshot());
+                    // 使用独立的库存对象，重现抽奖不影响实际库存
+                    snapshot = LotterySettings.load(snapshotConfig, new PrizeStockRegistry(1), getLogger());
+                } catch (InvalidConfigurationException e) {
+                    getLogger().severe("无法读取配置快照: " + e.getMessage());
+                }
+            }
+            LotterySettings snapshotSettings = snapshot;
+            Bukkit.getScheduler().runTask(this, () -> sendVerification(sender, record, playerName, snapshotSettings));
+        });
+    }
+
+    private void sendVerification(CommandSender sender, LotteryAuditRecord record, String playerName, LotterySettings snapshot) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        // 没有快照时按当前配置显示奖品
+        LotterySettings settings = snapshot != null ? snapshot : this.settings.get();
+        sendMessage(sender, "lottery-verify-header", String.valueOf(record.getId()), playerName, dateFormat.format(new Date(record.getTime())),
+                record.getTier().name(), describePrize(sender, settings, record.getTier(), record.getPrizeId()));
+        if (record.getPrizeId() == LotteryLogRecord.PRIZE_GUARANTEE) {
+            // 保底奖励由抽奖次数决定，不使用随机数
+            sendMessage(sender, "lottery-verify-guarantee");
+            return;
+        }
+        if (snapshot == null) {
+            // 旧版本写入的日志没有记录种子和配置快照
+            sendMessage(sender, "lottery-verify-no-snapshot");
+            return;
+        }
+        List<Integer> picks = snapshot.getPrizes(record.getTier()).replay(record.getSeed());
+        StringBuilder sequence = new StringBuilder();
+        for (int prizeId : picks) {
+            if (sequence.length() > 0) {
+                sequence.append(" -> ");
+            }
+            sequence.append(prizeId == LotteryLogRecord.PRIZE_NONE ? "-" : "#" + prizeId);
+        }
+        sendMessage(sender, picks.contains(record.getPrizeId()) ? "lottery-verify-match" : "lottery-verify-mismatch",
+                Long.toHexString(record.getSeed()), sequence.toString());
+    }
+
+    // 每个奖品的实际中奖率与配置概率对比，均按从奖品表抽取的次数计算，保底抽奖单独统计
+    private void sendSimulation(CommandSender sender, LotteryTier tier, PrizeTable prizes, LotterySimulation.Result result, long elapsed) {
+        long sampled = result.getSampledDraws();
+        sendMessage(sender, "lottery-simulate-header", tier.name(), String.valueOf(result.getDraws()), formatMillis(elapsed));
+        for (int slot = 0; slot < prizes.size(); slot++) {
+            Prize prize = prizes.getSlot(slot);
+            String preview = formatPrizePreview(prize.getCommands());
+            sendMessage(sender, "lottery-simulate-prize", "#" + prize.getId(), preview.isEmpty() ? "-" : preview,
+                    String.valueOf(result.getWins(slot)), formatPercent(result.getWins(slot), sampled), formatPercent(prizes.getWeight(slot)));
+        }
+        sendMessage(sender, "lottery-simulate-loss", String.valueOf(result.getLosses()), formatPercent(result.getLosses(), sampled),
+                formatPercent(prizes.getWeight(prizes.size())), formatPercent(result.getLosses(), result.getDraws()));
+        // 平均每多少次抽奖发放一次保底
+        String interval = result.getGuaranteeWins() > 0
+                ? String.format(Locale.ROOT, "%.2f", (double) result.getDraws() / result.getGuaranteeWins()) : "-";
+        sendMessage(sender, "lottery-simulate-guarantee", String.valueOf(result.getGuaranteeWins()),
+                formatPercent(result.getGuaranteeWins(), result.getDraws()), String.valueOf(result.getGuaranteeTriggers()), interval);
+    }
+
+    private static String formatPercent(long count, long total) {
+        return formatPercent(total > 0 ? count * 100.0 / total : 0);
+    }
+
+    private static String formatPercent(double percent) {
+        return String.format(Locale.ROOT, "%.4f", percent);
+    }
+
+    // /lottery history [玩家] [页码]，查询他人记录需要 lottery.history.others 权限
+    private void showHistory(CommandSender sender, String[] args) {
+        String targetName = null;
+        int page = 1;
+        try {
+            if (args.length == 2) {
+                // 只有一个参数时，数字视为页码，否则视为玩家名称
+                if (args[1].chars().allMatch(Character::isDigit)) {
+                    page = Integer.parseInt(args[1]);
+                } else {
+                    targetName = args[1];
+                }
+            } else if (args.length >= 3) {
+                targetName = args[1];
+                page = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            page = 0;
+        }
+        if (targetName == null) {
+            if (!(sender instanceof Player)) {
+                sendMessage(sender, "lottery-history-usage");
+                return;
+            }
+            targetName = sender.getName();
+        } else if (!targetName.equalsIgnoreCase(sender.getName()) && !sender.hasPermission("lottery.history.others")) {
+            sendMessage(sender, "no-permission");
+            return;
+        }
+        if (page < 1) {
+            sendMessage(sender, "lottery-history-usage");
+            return;
+        }
+        String name = targetName;
+        int targetPage = page;
+        int pageSize = settings.get().getHistoryPageSize();
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            // 按名称查找离线玩家可能需要访问网络，放在异步线程中
+            @SuppressWarnings("deprecation")
+            OfflinePlayer target = Bukkit.getOfflinePlayer(name);
+            if (!target.isOnline() && !target.hasPlayedBefore()) {
+                Bukkit.getScheduler().runTask(this, () -> sendMessage(sender, "lottery-history-player-not-found", name));
+                return;
+            }
+            UUID targetUUID = target.getUniqueId();
+            // 查看第一页或换了玩家时重新开始翻页
+            HistoryCursor cursor = historyCursors.compute(sender.getName(), (key, current) ->
+                    current == null || targetPage == 1 || !current.getPlayerUUID().equals(targetUUID) ? new HistoryCursor(targetUUID) : current);
+            List<LotteryHistoryEntry> entries = storage.loadHistory(cursor, targetPage, pageSize);
+            String displayName = target.getName() != null ? target.getName() : name;
+            Bukkit.getScheduler().runTask(this, () -> sendHistory(sender, displayName, targetPage, pageSize, entries));
+        });
+    }
+
+    private void sendHistory(CommandSender sender, String playerName, int page, int pageSize, List<LotteryHistoryEntry> entries) {
+        if (entries == null) {
+            sendMessage(sender, "lottery-history-failed");
+            return;
+        }
+        if (entries.isEmpty()) {
+            sendMessage(sender, "lottery-history-empty", playerName, String.valueOf(page));
+            return;
+        }
+        LotterySettings settings = this.settings.get();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sendMessage(sender, "lottery-history-header", playerName, String.valueOf(page));
+        for (int i = 0; i < Math.min(pageSize, entries.size()); i++) {
+            LotteryHistoryEntry entry = entries.get(i);
+            sendMessage(sender, "lottery-history-entry", String.valueOf(entry.getId()), dateFormat.format(new Date(entry.getTime())),
+                    entry.getTier().name(), describePrize(sender, settings, entry.getTier(), entry.getPrizeId()));
+        }
+        // 多读到的一条说明还有下一页
+        if (entries.size() > pageSize) {
+            sendMessage(sender, "lottery-history-next", playerName, String.valueOf(page + 1));
+        }
+    }
+
+    // 按当前配置把奖品编号还原为奖品预览，奖品已从配置中删除时显示编号
+    private String describePrize(CommandSender sender, LotterySettings settings, LotteryTier tier, int prizeId) {
+        if (prizeId == LotteryLogRecord.PRIZE_NONE) {
+            String lose = getMessage(sender, "lottery-history-lose");
+            return lose != null ? lose : "-";
+        }
+        if (prizeId == LotteryLogRecord.PRIZE_UNKNOWN) {
+            // 旧日志中的奖品已不在配置中
+            return "?";
+        }
+        List<String> commands;
+        if (prizeId == LotteryLogRecord.PRIZE_GUARANTEE) {
+            commands = settings.getGuaranteeCommands();
+        } else {
+            Prize prize = settings.getPrizes(tier).getPrize(prizeId);
+            commands = prize != null ? prize.getCommands() : Collections.emptyList();
+        }
+        String preview = formatPrizePreview(commands);
+        return preview.isEmpty() ? "#" + prizeId : preview;
+    }
+
+    private boolean canPlayerLottery(Player player, LotterySettings settings, LotteryTier tier, int draws, PlayerLotteryData data) {
         // 检查抽奖次数限制是否开启
-        boolean lotteryCountLimitEnabled = config.getBoolean("lottery-count-limit-enabled", false);
-        if (lotteryCountLimitEnabled) {
-            int maxLotteryCount = getMaxLotteryCount(player);
+        if (settings.isLotteryCountLimitEnabled()) {
+            int maxLotteryCount = settings.getMaxLotteryCount(tier);
             if (maxLotteryCount > 0) {
-                int currentCount = getPlayerLotteryCount(playerUUID);
+                // 按统计周期计数，周期过期的次数视为 0
+                int currentCount = data.getQuotaCount(settings.getLotteryCountPeriod());
                 if (currentCount >= maxLotteryCount) {
                     sendMessage(player, "lottery-count-limit-reached");
                     return false;
                 }
+                // 连抽时剩余次数必须足够
+                if (currentCount + draws > maxLotteryCount) {
+                    sendMessage(player, "lottery-count-not-enough", String.valueOf(maxLotteryCount - currentCount));
+                    return false;
+                }
             }
         }
         // 检查抽奖冷却时间
-        long cooldown = config.getLong("lottery-cooldown", 0) * 1000;
+        long cooldown = settings.getCooldownMillis();
         if (cooldown > 0) {
-            long lastLotteryTime = getPlayerLastLotteryTime(playerUUID);
+            long lastLotteryTime = data.getLastLotteryTime();
             long currentTime = System.currentTimeMillis();
             if (currentTime - lastLotteryTime < cooldown) {
                 long remainingTime = (cooldown - (currentTime - lastLotteryTime)) / 1000;
@@ -123,192 +897,311 @@ public class LotteryPlugin extends JavaPlugin {
                 return false;
             }
         }
-        // 检查是否处于保底状态
-        boolean isGuarantee = isPlayerInGuarantee(playerUUID);
-        if (isGuarantee) {
-            return true;
-        }
         return true;
     }
 
-    private void performLottery(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        // 检查玩家是否处于保底抽奖状态
-        boolean isGuarantee = isPlayerInGuarantee(playerUUID);
-        if (isGuarantee) {
-            // 执行保底抽奖
-            performGuaranteeLottery(player);
-            // 重置保底状态
-            setPlayerGuaranteeStatus(playerUUID, false);
-            // 重置抽奖次数
-            setPlayerLotteryCount(playerUUID, 0);
+    private void startLottery(Player player, LotterySettings settings, int draws, boolean retryOnConflict) {
+        // 存储迁移正在核对数据时暂停抽奖
+        if (storage.isWritesPaused()) {
+            sendMessage(player, "lottery-migrate-paused");
             return;
         }
-
-        // 获取玩家权限组对应的奖品列表
-        List<Map<?, ?>> prizes = getPrizesForPlayer(player);
-        // 存储每个奖品的概率
-        List<Double> probabilities = new ArrayList<>();
-        // 遍历奖品列表，提取概率信息
-        for (Map<?, ?> prize : prizes) {
-            probabilities.add(Double.parseDouble(prize.get("probability").toString()));
-        }
-        // 生成一个 0 到 100 之间的随机数
-        double randomValue = random.nextDouble() * 100;
-        double cumulativeProbability = 0;
-        int winningIndex = -1;
-        // 遍历概率列表，根据随机数确定中奖奖品
-        for (int i = 0; i < probabilities.size(); i++) {
-            cumulativeProbability += probabilities.get(i);
-            if (randomValue < cumulativeProbability) {
-                winningIndex = i;
-                break;
-            }
-        }
-        // 如果中奖
-        if (winningIndex != -1) {
-            Map<?, ?> winningPrize = prizes.get(winningIndex);
-            List<String> commands = (List<String>) winningPrize.get("commands");
-            for (String command : commands) {
-                // 替换 PlaceholderAPI 占位符
-                command = PlaceholderAPI.setPlaceholders(player, command);
-                // 执行中奖命令
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-            }
-            // 向玩家发送中奖消息
-            sendMessage(player, "lottery-win");
-            // 展示中奖详情
-            showWinningDetails(player, winningPrize);
-            // 记录抽奖日志
-            recordLotteryLog(player, commands.toString());
-        } else {
-            // 向玩家发送未中奖消息
-            sendMessage(player, "lottery-lose");
-            // 记录抽奖日志
-            recordLotteryLog(player, "未中奖");
-        }
-
-        // 检查是否触发保底
-        int currentCount = getPlayerLotteryCount(playerUUID);
-        int guaranteeCount = config.getInt("guarantee-count", 10);
-        if (currentCount + 1 >= guaranteeCount) {
-            // 开启保底抽奖状态
-            setPlayerGuaranteeStatus(playerUUID, true);
-            sendMessage(player, "lottery-guarantee-triggered");
+        // 日志写入积压或上一次抽奖仍在等待数据库时暂停抽奖
+        if (storage.isLogQueueFull() || pendingReservations.contains(player.getUniqueId())) {
+            sendMessage(player, "lottery-busy");
+            return;
+        }
+        PlayerLotteryData data = playerDataCache.get(player.getUniqueId());
+        if (data == null) {
+            // 缓存未命中时不在主线程查询数据库，加载完成后再抽奖
+            loadThenStartLottery(player, draws, retryOnConflict);
+            return;
+        }
+        // 从缓存中获取玩家权限组
+        LotteryTier tier = tierCache.getTier(player, settings);
+        // 检查玩家是否可以抽奖
+        long start = System.nanoTime();
+        boolean allowed = canPlayerLottery(player, settings, tier, draws, data);
+        metrics.record(LotteryMetrics.Stage.ELIGIBILITY, start);
+        if (allowed) {
+            // 执行抽奖操作，同时记录抽奖次数和时间
+            performLottery(player, settings, tier, draws, data, retryOnConflict);
         }
     }
 
-    private void performGuaranteeLottery(Player player) {
-        // 获取保底奖品列表
-        List<String> guaranteeCommands = config.getStringList("guarantee-commands");
-        for (String command : guaranteeCommands) {
-            // 替换 PlaceholderAPI 占位符
-            command = PlaceholderAPI.setPlaceholders(player, command);
-            // 执行保底中奖命令
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-        }
-        // 向玩家发送保底中奖消息
-        sendMessage(player, "lottery-guarantee-win");
-        // 展示中奖详情
-        StringBuilder prizePreview = new StringBuilder();
-        for (String command : guaranteeCommands) {
-            if (command.startsWith("give")) {
-                String[] parts = command.split(" ");
-                if (parts.length >= 3) {
-                    String itemName = parts[2];
-                    int amount = Integer.parseInt(parts[3]);
-                    prizePreview.append(itemName).append(" x ").append(amount).append(", ");
+    // 在异步线程中加载玩家数据，成功后回到主线程按最新配置抽奖，失败时拒绝本次抽奖
+    private void loadThenStartLottery(Player player, int draws, boolean retryOnConflict) {
+        UUID playerUUID = player.getUniqueId();
+        pendingReservations.add(playerUUID);
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            PlayerLotteryData data = getPlayerData(playerUUID);
+            Bukkit.getScheduler().runTask(this, () -> {
+                pendingReservations.remove(playerUUID);
+                if (data == null) {
+                    sendMessage(player, "lottery-data-load-failed");
+                } else if (player.isOnline()) {
+                    markOnline(playerUUID);
+                    startLottery(player, settings.get(), draws, retryOnConflict);
+                }
+            });
+        });
+    }
+
+    private void performLottery(Player player, LotterySettings settings, LotteryTier tier, int draws, PlayerLotteryData data, boolean retryOnConflict) {
+        long start = System.nanoTime();
+        LotteryOutcome outcome = drawPrizes(player.getUniqueId(), settings, tier, draws, data);
+        metrics.record(LotteryMetrics.Stage.SAMPLING, start);
+        if (!storage.isSharedDatabase()) {
+            // 单服时内存中的状态即为最新，直接应用，玩家状态和本次全部日志交给存储线程，在同一个事务中写入
+            // 持有玩家数据的锁，存储线程不会在入队和应用之间取走快照
+            start = System.nanoTime();
+            boolean queued;
+            synchronized (data) {
+                queued = storage.queueDraw(new LotteryDraw(data, outcome.getLogs()));
+                if (queued) {
+                    data.applyDraws(outcome);
                 }
             }
+            metrics.record(LotteryMetrics.Stage.PERSISTENCE, start);
+            if (!queued) {
+                // 日志写入积压，放弃本次抽奖并归还已扣减的库存，不在主线程等待数据库
+                for (PrizeStock.Claim claim : outcome.getStockClaims()) {
+                    claim.release();
+                }
+                sendMessage(player, "lottery-busy");
+                return;
+            }
+            completeLottery(player, settings, tier, draws, data, outcome);
+            return;
         }
-        if (prizePreview.length() > 0) {
-            prizePreview.setLength(prizePreview.length() - 2);
-        }
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        String timestamp = dateFormat.format(new Date());
-        sendMessage(player, "lottery-winning-details", "100", timestamp, prizePreview.toString());
-        // 记录抽奖日志
-        recordLotteryLog(player, guaranteeCommands.toString());
+        // 多服共享数据库时，先以版本号为条件写入玩家状态，成功后才发放奖励
+        UUID playerUUID = player.getUniqueId();
+        long version = data.getVersion();
+        pendingReservations.add(playerUUID);
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            long reserveStart = System.nanoTime();
+            LotteryStorage.Reservation reservation = storage.reserveDraw(playerUUID, version, outcome);
+            metrics.record(LotteryMetrics.Stage.RESERVATION, reserveStart);
+            // 版本冲突时读取其他服务器写入的最新状态
+            PlayerLotteryData latest = reservation == LotteryStorage.Reservation.CONFLICT ? storage.loadPlayerData(playerUUID) : null;
+            Bukkit.getScheduler().runTask(this, () -> {
+                pendingReservations.remove(playerUUID);
+                if (reservation == LotteryStorage.Reservation.RESERVED) {
+                    data.applyReserved(outcome);
+                    completeLottery(player, settings, tier, draws, data, outcome);
+                    return;
+                }
+                // 抽奖未完成，归还已扣减的库存
+                for (PrizeStock.Claim claim : outcome.getStockClaims()) {
+                    claim.release();
+                }
+                if (latest != null) {
+                    data.replaceWith(latest);
+                    // 按最新状态重新检查并抽奖一次，仍然冲突时请玩家稍后再试
+                    if (retryOnConflict && player.isOnline()) {
+                        startLottery(player, this.settings.get(), draws, false);
+                        return;
+                    }
+                }
+                sendMessage(player, "lottery-busy");
+            });
+        });
     }
 
-    private void recordLotteryCount(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        int currentCount = getPlayerLotteryCount(playerUUID);
-        setPlayerLotteryCount(playerUUID, currentCount + 1);
+    // 按玩家当前状态抽取奖品，只计算结果，不修改玩家状态
+    private LotteryOutcome drawPrizes(UUID playerUUID, LotterySettings settings, LotteryTier tier, int draws, PlayerLotteryData data) {
+        long now = System.currentTimeMillis();
+        // 本次所有抽奖的奖励命令及执行次数
+        Map<CommandTemplate, Integer> rewards = new LinkedHashMap<>();
+        // 本次所有抽奖的中奖命令，用于连抽汇总
+        List<String> wonCommands = new ArrayList<>();
+        // 本次所有抽奖的日志
+        List<LotteryLogRecord> logs = new ArrayList<>(draws);
+        // 限量奖品的发放记录，抽奖未能完成时归还库存
+        List<PrizeStock.Claim> stockClaims = new ArrayList<>();
+        int lotteryCount = data.getLotteryCount();
+        boolean guarantee = data.isGuarantee();
+        // 统计周期内的次数，周期已过期时从 0 开始，本次抽奖时写入新的周期编号
+        long windowEpoch = settings.getLotteryCountPeriod().epochOf(now);
+        int windowCount = data.getWindowCount(windowEpoch) + draws;
+        boolean lotteryCountReset = false;
+        int lotteryCountIncrement = 0;
+        boolean guaranteeTriggered = false;
+        int wins = 0;
+        for (int i = 0; i < draws; i++) {
+            // 检查玩家是否处于保底抽奖状态
+            if (guarantee) {
+                // 执行保底抽奖
+                addRewards(rewards, settings.getGuaranteeCommandTemplates());
+                wonCommands.addAll(settings.getGuaranteeCommands());
+                wins++;
+                // 记录抽奖日志
+                logs.add(new LotteryLogRecord(playerUUID, tier, LotteryLogRecord.PRIZE_GUARANTEE, now, 0, settings.getSnapshotId()));
+                // 重置保底状态和抽奖次数
+                guarantee = false;
+                lotteryCount = 0;
+                lotteryCountReset = true;
+                lotteryCountIncrement = 0;
+            } else {
+                // 从玩家权限组对应的奖品表中抽取奖品，记录种子用于重现
+                long seed = RANDOM.get().nextLong();
+                Prize winningPrize = settings.getPrizes(tier).sample(seed, stockClaims);
+                // 如果中奖
+                if (winningPrize != null) {
+                    addRewards(rewards, winningPrize.getCommandTemplates());
+                    wonCommands.addAll(winningPrize.getCommands());
+                    wins++;
+                    // 记录抽奖日志
+                    logs.add(new LotteryLogRecord(playerUUID, tier, winningPrize.getId(), now, seed, settings.getSnapshotId()));
+                } else {
+                    // 记录抽奖日志
+                    logs.add(new LotteryLogRecord(playerUUID, tier, LotteryLogRecord.PRIZE_NONE, now, seed, settings.getSnapshotId()));
+                }
+                // 检查是否触发保底
+                if (lotteryCount + 1 >= settings.getGuaranteeCount()) {
+                    // 开启保底抽奖状态
+                    guarantee = true;
+                    guaranteeTriggered = true;
+                }
+            }
+            // 记录玩家抽奖次数
+            lotteryCount++;
+            lotteryCountIncrement++;
+        }
+        return new LotteryOutcome(rewards, wonCommands, logs, wins, guaranteeTriggered,
+                lotteryCount, lotteryCountReset, lotteryCountIncrement, guarantee, windowCount, windowEpoch, now, stockClaims);
     }
 
-    private void recordLastLotteryTime(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        setPlayerLastLotteryTime(playerUUID, System.currentTimeMillis());
+    // 抽奖结果已应用到玩家状态并交给数据库后，播放特效、发送消息并发放奖励
+    private void completeLottery(Player player, LotterySettings settings, LotteryTier tier, int draws, PlayerLotteryData data, LotteryOutcome outcome) {
+        long start = System.nanoTime();
+        // 播放抽奖音效
+        playLotterySound(player, settings);
+        // 播放抽奖粒子特效
+        playLotteryParticles(player, settings);
+        // 模拟屏幕震动
+        simulateScreenShake(player, settings);
+        metrics.record(LotteryMetrics.Stage.EFFECTS, start);
+        if (draws == 1) {
+            int prizeId = outcome.getLogs().get(0).getPrizeId();
+            Prize prize = prizeId >= 0 ? settings.getPrizes(tier).getPrize(prizeId) : null;
+            if (prizeId == LotteryLogRecord.PRIZE_GUARANTEE) {
+                // 向玩家发送保底中奖消息
+                sendMessage(player, "lottery-guarantee-win");
+                // 展示中奖详情
+                showWinningDetails(player, "100", settings.getGuaranteeCommands());
+            } else if (prize != null) {
+                // 向玩家发送中奖消息
+                sendMessage(player, "lottery-win");
+                // 展示中奖详情
+                showWinningDetails(player, String.valueOf(prize.getProbability()), prize.getCommands());
+            } else {
+                // 向玩家发送未中奖消息
+                sendMessage(player, "lottery-lose");
+            }
+        }
+        int jackpots = 0;
+        for (LotteryLogRecord log : outcome.getLogs()) {
+            if (log.getPrizeId() == LotteryLogRecord.PRIZE_GUARANTEE) {
+                metrics.recordGuarantee();
+            } else if (log.getPrizeId() != LotteryLogRecord.PRIZE_NONE) {
+                metrics.recordWin(tier, log.getPrizeId());
+                Prize prize = settings.getPrizes(tier).getPrize(log.getPrizeId());
+                if (prize != null && prize.isJackpot()) {
+                    jackpots++;
+                }
+            }
+        }
+        metrics.addDraws(draws);
+        // 增量更新排行榜
+        drawLeaderboard.increment(player.getUniqueId(), player.getName(), draws, data.getTotalDraws());
+        if (jackpots > 0) {
+            jackpotLeaderboard.increment(player.getUniqueId(), player.getName(), jackpots, outcome.getTime());
+        }
+        // 填充占位符后交给奖励命令队列分批执行
+        start = System.nanoTime();
+        rewardDispatcher.dispatch(player, outcome.getRewards());
+        metrics.record(LotteryMetrics.Stage.REWARD_DISPATCH, start);
+        if (draws > 1) {
+            // 连抽只发送一条汇总消息
+            sendMessage(player, "lottery-multi-result", String.valueOf(draws), String.valueOf(outcome.getWins()), formatPrizePreview(outcome.getWonCommands()));
+        }
+        // 保底在本次连抽中触发且尚未使用时提示玩家
+        if (outcome.isGuaranteeTriggered() && outcome.isGuarantee()) {
+            sendMessage(player, "lottery-guarantee-triggered");
+        }
     }
 
-    private void recordLotteryLog(Player player, String prize) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        String timestamp = dateFormat.format(new Date());
-        String playerName = player.getName();
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO lottery_logs (player_name, result, timestamp) VALUES (?,?,?)")) {
-            statement.setString(1, playerName);
-            statement.setString(2, prize);
-            statement.setString(3, timestamp);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            getLogger().severe("无法记录抽奖日志: " + e.getMessage());
+    // 累加奖励命令的执行次数
+    private void addRewards(Map<CommandTemplate, Integer> rewards, List<CommandTemplate> commands) {
+        for (CommandTemplate command : commands) {
+            rewards.merge(command, 1, Integer::sum);
         }
     }
 
-    private void playLotterySound(Player player) {
-        String soundName = config.getString("lottery-sound", "BLOCK_NOTE_BLOCK_PLING");
-        try {
-            Sound sound = Sound.valueOf(soundName);
+    private void playLotterySound(Player player, LotterySettings settings) {
+        // 音效名称已在加载配置时校验，无效时跳过
+        Sound sound = settings.getLotterySound();
+        if (sound != null) {
             player.playSound(player.getLocation(), sound, 1.0f, 1.0f);
-        } catch (IllegalArgumentException e) {
-            getLogger().warning("无效的音效名称: " + soundName);
         }
     }
 
-    private void playLotteryParticles(Player player) {
-        String particleName = config.getString("lottery-particle", "VILLAGER_HAPPY");
-        Location location = player.getLocation();
-        try {
-            org.bukkit.Particle particle = org.bukkit.Particle.valueOf(particleName);
+    private void playLotteryParticles(Player player, LotterySettings settings) {
+        // 粒子名称已在加载配置时校验，无效时跳过
+        Particle particle = settings.getLotteryParticle();
+        if (particle != null) {
+            Location location = player.getLocation();
             player.getWorld().spawnParticle(particle, location, 20, 0.5, 0.5, 0.5, 0.1);
-        } catch (IllegalArgumentException e) {
-            getLogger().warning("无效的粒子名称: " + particleName);
         }
     }
 
-    private void simulateScreenShake(Player player) {
-        if (config.getBoolean("lottery-screen-shake", false)) {
+    private void simulateScreenShake(Player player, LotterySettings settings) {
+        if (settings.isScreenShake()) {
             player.addPotionEffect(new PotionEffect(PotionEffectType.CONFUSION, 20, 2));
             Vector direction = player.getLocation().getDirection();
             player.setVelocity(direction.multiply(0.1).setY(0.1));
         }
     }
 
-    private void showWinningDetails(Player player, Map<?, ?> winningPrize) {
-        double probability = Double.parseDouble(winningPrize.get("probability").toString());
+    private void showWinningDetails(Player player, String probability, List<String> commands) {
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         String timestamp = dateFormat.format(new Date());
-        List<String> commands = (List<String>) winningPrize.get("commands");
-        StringBuilder prizePreview = new StringBuilder();
+        sendMessage(player, "lottery-winning-details", probability, timestamp, formatPrizePreview(commands));
+    }
+
+    // 从 give 命令中提取物品和数量，生成 "物品 x 数量" 形式的预览，相同物品合并数量
+    static String formatPrizePreview(List<String> commands) {
+        Map<String, Integer> items = new LinkedHashMap<>();
         for (String command : commands) {
             if (command.startsWith("give")) {
                 String[] parts = command.split(" ");
                 if (parts.length >= 3) {
                     String itemName = parts[2];
-                    int amount = Integer.parseInt(parts[3]);
-                    prizePreview.append(itemName).append(" x ").append(amount).append(", ");
+                    int amount = 1;
+                    if (parts.length >= 4) {
+                        try {
+                            amount = Integer.parseInt(parts[3]);
+                        } catch (NumberFormatException ignored) {
+                            // 数量不是数字时按 1 个展示
+                        }
+                    }
+                    items.merge(itemName, amount, Integer::sum);
                 }
             }
         }
-        if (prizePreview.length() > 0) {
-            prizePreview.setLength(prizePreview.length() - 2);
+        StringBuilder prizePreview = new StringBuilder();
+        for (Map.Entry<String, Integer> item : items.entrySet()) {
+            if (prizePreview.length() > 0) {
+                prizePreview.append(", ");
+            }
+            prizePreview.append(item.getKey()).append(" x ").append(item.getValue());
         }
-        sendMessage(player, "lottery-winning-details", String.valueOf(probability), timestamp, prizePreview.toString());
+        return prizePreview.toString();
     }
 
     private void loadLanguageConfigs() {
-        languageConfigs = new HashMap<>();
+        Map<String, Map<String, MessageTemplate>> templates = new HashMap<>();
         File langFolder = new File(getDataFolder(), "lang");
         if (!langFolder.exists()) {
             langFolder.mkdirs();
@@ -316,242 +1209,122 @@ public class LotteryPlugin extends JavaPlugin {
         for (String langCode : config.getStringList("supported-languages")) {
             File langFile = new File(langFolder, langCode + ".yml");
             if (!langFile.exists()) {
-                saveResource("lang/" + langCode + ".yml", false);
+                try {
+                    saveResource("lang/" + langCode + ".yml", false);
+                } catch (IllegalArgumentException e) {
+                    // 插件没有附带该语言文件，全部使用内置的英文消息
+                }
+            }
+            // 将语言文件中的所有消息编译为模板
+            FileConfiguration langConfig = YamlConfiguration.loadConfiguration(langFile);
+            Map<String, MessageTemplate> messages = new HashMap<>();
+            for (String key : langConfig.getKeys(true)) {
+                if (langConfig.isString(key)) {
+                    messages.put(key, MessageTemplate.compile(langConfig.getString(key)));
+                }
             }
-            languageConfigs.put(langCode, YamlConfiguration.loadConfiguration(langFile));
+            // 语言文件中缺少的消息使用内置的英文文本
+            DefaultMessages.fillMissing(messages);
+            templates.put(langCode.toLowerCase(Locale.ROOT), messages);
         }
+        // 没有配置英文时也保证回退语言存在
+        DefaultMessages.fillMissing(templates.computeIfAbsent("en", code -> new HashMap<>()));
+        languageTemplates = templates;
+        playerLanguages.clear();
     }
 
-    private void sendMessage(Player player, String key, String... args) {
-        String langCode = player.getLocale().split("_")[0];
-        FileConfiguration langConfig = languageConfigs.getOrDefault(langCode, languageConfigs.get("en"));
-        String message = langConfig.getString(key);
-        if (message != null) {
-            for (int i = 0; i < args.length; i++) {
-                message = message.replace("{" + i + "}", args[i]);
+    // 根据客户端语言代码查找消息模板，依次尝试完整代码、语言前缀和英文
+    private Map<String, MessageTemplate> getLanguageTemplates(String locale) {
+        String langCode = locale == null ? "en" : locale.toLowerCase(Locale.ROOT);
+        Map<String, MessageTemplate> templates = languageTemplates.get(langCode);
+        if (templates == null) {
+            int separator = langCode.indexOf('_');
+            if (separator > 0) {
+                templates = languageTemplates.get(langCode.substring(0, separator));
             }
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
         }
+        if (templates == null) {
+            templates = languageTemplates.getOrDefault("en", Collections.emptyMap());
+        }
+        return templates;
     }
 
-    private int getMaxLotteryCount(Player player) {
-        if (permission != null) {
-            String opPermission = config.getString("op-permission", "lottery.op");
-            String memberPermission = config.getString("member-permission", "lottery.member");
-            if (permission.has(player, opPermission)) {
-                return config.getInt("op-max-lottery-count", 10);
-            } else if (permission.has(player, memberPermission)) {
-                return config.getInt("member-max-lottery-count", 5);
-            }
+    private void sendMessage(CommandSender sender, String key, String... args) {
+        String message = getMessage(sender, key, args);
+        if (message != null) {
+            sender.sendMessage(message);
         }
-        return config.getInt("max-lottery-count", 3);
     }
 
-    private List<Map<?, ?>> getPrizesForPlayer(Player player) {
-        if (permission != null) {
-            String opPermission = config.getString("op-permission", "lottery.op");
-            String memberPermission = config.getString("member-permission", "lottery.member");
-            if (permission.has(player, opPermission)) {
-                return config.getMapList("op-prizes");
-            } else if (permission.has(player, memberPermission)) {
-                return config.getMapList("member-prizes");
-            }
+    // 按发送者的语言渲染消息，消息不存在时返回 null
+    private String getMessage(CommandSender sender, String key, String... args) {
+        Map<String, MessageTemplate> templates;
+        if (sender instanceof Player) {
+            Player player = (Player) sender;
+            templates = playerLanguages.computeIfAbsent(player.getUniqueId(), uuid -> getLanguageTemplates(player.getLocale()));
+        } else {
+            // 控制台等非玩家发送者使用英文
+            templates = getLanguageTemplates("en");
         }
-        return config.getMapList("prizes");
+        MessageTemplate template = templates.get(key);
+        return template != null ? template.render(args) : null;
     }
 
-    private int getPlayerLotteryCount(UUID playerUUID) {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT lottery_count FROM player_lottery_data WHERE player_uuid = ?")) {
-            statement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getInt("lottery_count");
-                }
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法获取玩家抽奖次数: " + e.getMessage());
-        }
-        return 0;
+    // 供其他插件在玩家权限变更后主动刷新权限组缓存
+    public void refreshPermissionTier(Player player) {
+        tierCache.refresh(player, settings.get());
     }
 
-    private void setPlayerLotteryCount(UUID playerUUID, int count) {
-        try (PreparedStatement checkStatement = connection.prepareStatement("SELECT * FROM player_lottery_data WHERE player_uuid = ?")) {
-            checkStatement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = checkStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    try (PreparedStatement updateStatement = connection.prepareStatement("UPDATE player_lottery_data SET lottery_count = ? WHERE player_uuid = ?")) {
-                        updateStatement.setInt(1, count);
-                        updateStatement.setString(2, playerUUID.toString());
-                        updateStatement.executeUpdate();
-                    }
-                } else {
-                    try (PreparedStatement insertStatement = connection.prepareStatement("INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee) VALUES (?,?,?,?)")) {
-                        insertStatement.setString(1, playerUUID.toString());
-                        insertStatement.setInt(2, count);
-                        insertStatement.setLong(3, 0);
-                        insertStatement.setBoolean(4, false);
-                        insertStatement.executeUpdate();
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法设置玩家抽奖次数: " + e.getMessage());
-        }
+    // 优先从缓存获取，未命中时从数据库加载，会阻塞当前线程，不能在主线程调用
+    // 加载失败时返回 null 且不写入缓存，避免之后用初始数据覆盖数据库中的保底和冷却状态
+    private PlayerLotteryData getPlayerData(UUID playerUUID) {
+        return playerDataCache.computeIfAbsent(playerUUID, storage::loadPlayerData);
     }
 
-    private long getPlayerLastLotteryTime(UUID playerUUID) {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT last_lottery_time FROM player_lottery_data WHERE player_uuid = ?")) {
-            statement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getLong("last_lottery_time");
-                }
+    private void flushPlayerData() {
+        // 收集所有有未写回修改的玩家数据快照
+        Map<PlayerLotteryData, PlayerLotteryData> snapshots = new IdentityHashMap<>();
+        for (PlayerLotteryData data : playerDataCache.values()) {
+            PlayerLotteryData snapshot = data.snapshotIfDirty();
+            if (snapshot != null) {
+                snapshots.put(data, snapshot);
             }
-        } catch (SQLException e) {
-            getLogger().severe("无法获取玩家上次抽奖时间: " + e.getMessage());
         }
-        return 0;
-    }
-
-    private void setPlayerLastLotteryTime(UUID playerUUID, long time) {
-        try (PreparedStatement checkStatement = connection.prepareStatement("SELECT * FROM player_lottery_data WHERE player_uuid = ?")) {
-            checkStatement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = checkStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    try (PreparedStatement updateStatement = connection.prepareStatement("UPDATE player_lottery_data SET last_lottery_time = ? WHERE player_uuid = ?")) {
-                        updateStatement.setLong(1, time);
-                        updateStatement.setString(2, playerUUID.toString());
-                        updateStatement.executeUpdate();
-                    }
-                } else {
-                    try (PreparedStatement insertStatement = connection.prepareStatement("INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee) VALUES (?,?,?,?)")) {
-                        insertStatement.setString(1, playerUUID.toString());
-                        insertStatement.setInt(2, 0);
-                        insertStatement.setLong(3, time);
-                        insertStatement.setBoolean(4, false);
-                        insertStatement.executeUpdate();
-                    }
-                }
+        if (!snapshots.isEmpty() && !storage.savePlayerData(new ArrayList<>(snapshots.values()))) {
+            // 写回失败，合并回缓存等待下次重试
+            for (Map.Entry<PlayerLotteryData, PlayerLotteryData> entry : snapshots.entrySet()) {
+                entry.getKey().restore(entry.getValue());
             }
-        } catch (SQLException e) {
-            getLogger().severe("无法设置玩家上次抽奖时间: " + e.getMessage());
         }
-    }
-
-    private boolean isPlayerInGuarantee(UUID playerUUID) {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT is_guarantee FROM player_lottery_data WHERE player_uuid = ?")) {
-            statement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getBoolean("is_guarantee");
-                }
+        // 移除已离线且数据已写回的玩家
+        List<PlayerLotteryData> evicted = new ArrayList<>();
+        playerDataCache.values().removeIf(data -> {
+            if (data.isOnline() || data.isDirty()) {
+                return false;
+            }
+            evicted.add(data);
+            return true;
+        });
+        // 判断为离线后、移除前玩家可能重新进入并被标记为在线，放回缓存
+        for (PlayerLotteryData data : evicted) {
+            if (data.isOnline()) {
+                playerDataCache.putIfAbsent(data.getPlayerUUID(), data);
             }
-        } catch (SQLException e) {
-            getLogger().severe("无法获取玩家保底状态: " + e.getMessage());
         }
-        return false;
     }
 
-    private void setPlayerGuaranteeStatus(UUID playerUUID, boolean status) {
-        try (PreparedStatement checkStatement = connection.prepareStatement("SELECT * FROM player_lottery_data WHERE player_uuid = ?")) {
-            checkStatement.setString(1, playerUUID.toString());
-            try (ResultSet resultSet = checkStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    try (PreparedStatement updateStatement = connection.prepareStatement("UPDATE player_lottery_data SET is_guarantee = ? WHERE player_uuid = ?")) {
-                        updateStatement.setBoolean(1, status);
-                        updateStatement.setString(2, playerUUID.toString());
-                        updateStatement.executeUpdate();
-                    }
-                } else {
-                    try (PreparedStatement insertStatement = connection.prepareStatement("INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee) VALUES (?,?,?,?)")) {
-                        insertStatement.setString(1, playerUUID.toString());
-                        insertStatement.setInt(2, 0);
-                        insertStatement.setLong(3, 0);
-                        insertStatement.setBoolean(4, status);
-                        insertStatement.executeUpdate();
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法设置玩家保底状态: " + e.getMessage());
-        }
+    // 获取内存中的玩家抽奖状态，不在缓存中时返回 null，不会访问数据库
+    public PlayerLotteryData getCachedPlayerData(UUID playerUUID) {
+        return playerDataCache == null ? null : playerDataCache.get(playerUUID);
     }
 
-    private void initDatabase() {
-        storageType = config.getString("storage-type", "sqlite");
-        try {
-            if (storageType.equalsIgnoreCase("sqlite")) {
-                File databaseFile = new File(getDataFolder(), "lottery.db");
-                connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
-            } else if (storageType.equalsIgnoreCase("mysql")) {
-                String host = config.getString("mysql.host", "localhost");
-                String port = config.getString("mysql.port", "3306");
-                String database = config.getString("mysql.database", "lottery");
-                String username = config.getString("mysql.username", "root");
-                String password = config.getString("mysql.password", "password");
-                connection = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database, username, password);
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法连接到数据库: " + e.getMessage());
-        }
-    }
-
-    private void createTables() {
-        try (Statement statement = connection.createStatement()) {
-            if (storageType.equalsIgnoreCase("sqlite")) {
-                statement.execute("CREATE TABLE IF NOT EXISTS player_lottery_data (" +
-                        "player_uuid TEXT PRIMARY KEY, " +
-                        "lottery_count INTEGER, " +
-                        "last_lottery_time INTEGER, " +
-                        "is_guarantee BOOLEAN" +
-                        ")");
-                statement.execute("CREATE TABLE IF NOT EXISTS lottery_logs (" +
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        "player_name TEXT, " +
-                        "result TEXT, " +
-                        "timestamp TEXT" +
-                        ")");
-            } else if (storageType.equalsIgnoreCase("mysql")) {
-                statement.execute("CREATE TABLE IF NOT EXISTS player_lottery_data (" +
-                        "player_uuid VARCHAR(36) PRIMARY KEY, " +
-                        "lottery_count INT, " +
-                        "last_lottery_time BIGINT, " +
-                        "is_guarantee BOOLEAN" +
-                        ")");
-                statement.execute("CREATE TABLE IF NOT EXISTS lottery_logs (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "player_name VARCHAR(255), " +
-                        "result TEXT, " +
-                        "timestamp VARCHAR(255)" +
-                        ")");
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法创建数据库表: " + e.getMessage());
-        }
-    }
-
-    private void closeDatabaseConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法关闭数据库连接: " + e.getMessage());
-        }
+    public LotterySettings getSettings() {
+        return settings.get();
     }
 
-    public Map<UUID, Integer> getPlayerLotteryCount() {
-        Map<UUID, Integer> countMap = new HashMap<>();
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery("SELECT player_uuid, lottery_count FROM player_lottery_data")) {
-            while (resultSet.next()) {
-                UUID playerUUID = UUID.fromString(resultSet.getString("player_uuid"));
-                int count = resultSet.getInt("lottery_count");
-                countMap.put(playerUUID, count);
-            }
-        } catch (SQLException e) {
-            getLogger().severe("无法获取玩家抽奖次数: " + e.getMessage());
-        }
-        return countMap;
+    // 缓存中的玩家权限组，不查询权限插件，没有缓存时为默认权限组，供 PlaceholderAPI 的异步线程调用
+    public LotteryTier getCachedPermissionTier(Player player) {
+        LotteryTier tier = tierCache.getCachedTier(player.getUniqueId());
+        return tier != null ? tier : LotteryTier.DEFAULT;
     }
-}    
+}
@@ -0,0 +1,248 @@
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+// 抽奖配置快照，创建时完成校验和类型转换，创建后不可修改
+public class LotterySettings {
+
+    // 影响抽奖结果的配置项，保存在配置快照中用于重现抽奖
+    private static final String[] SNAPSHOT_KEYS = {"prizes", "member-prizes", "op-prizes", "guarantee-count", "guarantee-commands"};
+
+    // 抽奖次数限制开关
+    private final boolean lotteryCountLimitEnabled;
+    // 普通玩家最大抽奖次数
+    private final int maxLotteryCount;
+    // 会员玩家最大抽奖次数
+    private final int memberMaxLotteryCount;
+    // OP 玩家最大抽奖次数
+    private final int opMaxLotteryCount;
+    // 抽奖次数限制的统计周期
+    private final ResetPeriod lotteryCountPeriod;
+    // 抽奖冷却时间（毫秒）
+    private final long cooldownMillis;
+    // 单次命令最多连抽次数
+    private final int maxMultiDraw;
+    // 抽奖音效，配置无效时为 null
+    private final Sound lotterySound;
+    // 抽奖粒子特效，配置无效时为 null
+    private final Particle lotteryParticle;
+    // 是否开启屏幕震动
+    private final boolean screenShake;
+    // 保底抽奖次数
+    private final int guaranteeCount;
+    // 保底奖品命令列表
+    private final List<String> guaranteeCommands;
+    // 预编译的保底奖品命令
+    private final List<CommandTemplate> guaranteeCommandTemplates;
+    // OP 权限名称
+    private final String opPermission;
+    // 会员权限名称
+    private final String memberPermission;
+    // 普通玩家奖品表
+    private final PrizeTable prizes;
+    // 会员玩家奖品表
+    private final PrizeTable memberPrizes;
+    // OP 玩家奖品表
+    private final PrizeTable opPrizes;
+    // 数据库初始化完成前占位符返回的文本
+    private final String placeholderNotReady;
+    // /lottery history 每页显示的记录条数
+    private final int historyPageSize;
+    // /lottery simulate 单次最多模拟的抽奖次数
+    private final long simulateMaxDraws;
+    // /lottery export 每批读取的日志条数
+    private final int logExportFetchSize;
+    // /lottery migrate 每批复制的行数
+    private final int migrateChunkSize;
+    // 影响抽奖结果的配置项，YAML 格式
+    private final String snapshot;
+    // 配置快照在数据库中的编号，未保存时为 0
+    private final int snapshotId;
+
+    private LotterySettings(ConfigurationSection config, PrizeStockRegistry stocks, Logger logger, ToIntFunction<String> saveSnapshot) {
+        lotteryCountLimitEnabled = config.getBoolean("lottery-count-limit-enabled", false);
+        maxLotteryCount = config.getInt("max-lottery-count", 3);
+        memberMaxLotteryCount = config.getInt("member-max-lottery-count", 5);
+        opMaxLotteryCount = config.getInt("op-max-lottery-count", 10);
+        lotteryCountPeriod = ResetPeriod.parse(config.getString("lottery-count-period", "never"), logger);
+        cooldownMillis = Math.max(0, config.getLong("lottery-cooldown", 0)) * 1000;
+        maxMultiDraw = Math.max(1, config.getInt("max-multi-draw", 10));
+        lotterySound = parseEnum(Sound.class, config.getString("lottery-sound", "BLOCK_NOTE_BLOCK_PLING"), "无效的音效名称: ", logger);
+        lotteryParticle = parseEnum(Particle.class, config.getString("lottery-particle", "VILLAGER_HAPPY"), "无效的粒子名称: ", logger);
+        screenShake = config.getBoolean("lottery-screen-shake", false);
+        int configuredGuaranteeCount = config.getInt("guarantee-count", 10);
+        if (configuredGuaranteeCount <= 0) {
+            logger.warning("无效的保底抽奖次数: " + configuredGuaranteeCount);
+            configuredGuaranteeCount = 10;
+        }
+        guaranteeCount = configuredGuaranteeCount;
+        guaranteeCommands = Collections.unmodifiableList(new ArrayList<>(config.getStringList("guarantee-commands")));
+        guaranteeCommandTemplates = CommandTemplate.compileAll(guaranteeCommands);
+        opPermission = config.getString("op-permission", "lottery.op");
+        memberPermission = config.getString("member-permission", "lottery.member");
+        prizes = PrizeTable.compile(config.getMapList("prizes"), LotteryTier.DEFAULT, stocks, logger);
+        memberPrizes = PrizeTable.compile(config.getMapList("member-prizes"), LotteryTier.MEMBER, stocks, logger);
+        opPrizes = PrizeTable.compile(config.getMapList("op-prizes"), LotteryTier.OP, stocks, logger);
+        placeholderNotReady = config.getString("placeholder-not-ready", "...");
+        historyPageSize = Math.max(1, config.getInt("history-page-size", 10));
+        simulateMaxDraws = Math.max(1, config.getLong("simulate-max-draws", 10000000));
+        logExportFetchSize = Math.max(100, config.getInt("log-export-fetch-size", 1000));
+        migrateChunkSize = Math.max(100, config.getInt("migrate-chunk-size", 5000));
+        YamlConfiguration snapshotConfig = new YamlConfiguration();
+        for (String key : SNAPSHOT_KEYS) {
+            snapshotConfig.set(key, config.get(key));
+        }
+        snapshot = snapshotConfig.saveToString();
+        snapshotId = saveSnapshot.applyAsInt(snapshot);
+    }
+
+    // 从配置构建快照，限量奖品沿用 stocks 中的库存，不保存配置快照
+    public static LotterySettings load(ConfigurationSection config, PrizeStockRegistry stocks, Logger logger) {
+        return new LotterySettings(config, stocks, logger, snapshot -> 0);
+    }
+
+    // 从配置构建快照，发布前用 saveSnapshot 保存配置快照并取得编号，保存失败时编号为 0
+    public static LotterySettings load(ConfigurationSection config, PrizeStockRegistry stocks, Logger logger, ToIntFunction<String> saveSnapshot) {
+        return new LotterySettings(config, stocks, logger, saveSnapshot);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String warning, Logger logger) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            logger.warning(warning + name);
+            return null;
+        }
+    }
+
+    public boolean isLotteryCountLimitEnabled() {
+        return lotteryCountLimitEnabled;
+    }
+
+    public int getMaxLotteryCount() {
+        return maxLotteryCount;
+    }
+
+    public int getMemberMaxLotteryCount() {
+        return memberMaxLotteryCount;
+    }
+
+    public int getOpMaxLotteryCount() {
+        return opMaxLotteryCount;
+    }
+
+    public ResetPeriod getLotteryCountPeriod() {
+        return lotteryCountPeriod;
+    }
+
+    public long getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    public int getMaxMultiDraw() {
+        return maxMultiDraw;
+    }
+
+    public Sound getLotterySound() {
+        return lotterySound;
+    }
+
+    public Particle getLotteryParticle() {
+        return lotteryParticle;
+    }
+
+    public boolean isScreenShake() {
+        return screenShake;
+    }
+
+    public int getGuaranteeCount() {
+        return guaranteeCount;
+    }
+
+    public List<String> getGuaranteeCommands() {
+        return guaranteeCommands;
+    }
+
+    public List<CommandTemplate> getGuaranteeCommandTemplates() {
+        return guaranteeCommandTemplates;
+    }
+
+    public String getOpPermission() {
+        return opPermission;
+    }
+
+    public String getMemberPermission() {
+        return memberPermission;
+    }
+
+    public PrizeTable getPrizes() {
+        return prizes;
+    }
+
+    public PrizeTable getMemberPrizes() {
+        return memberPrizes;
+    }
+
+    public PrizeTable getOpPrizes() {
+        return opPrizes;
+    }
+
+    public String getPlaceholderNotReady() {
+        return placeholderNotReady;
+    }
+
+    public int getHistoryPageSize() {
+        return historyPageSize;
+    }
+
+    public long getSimulateMaxDraws() {
+        return simulateMaxDraws;
+    }
+
+    public int getLogExportFetchSize() {
+        return logExportFetchSize;
+    }
+
+    public int getMigrateChunkSize() {
+        return migrateChunkSize;
+    }
+
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    public int getSnapshotId() {
+        return snapshotId;
+    }
+
+    // 获取权限组对应的最大抽奖次数
+    public int getMaxLotteryCount(LotteryTier tier) {
+        switch (tier) {
+            case OP:
+                return opMaxLotteryCount;
+            case MEMBER:
+                return memberMaxLotteryCount;
+            default:
+                return maxLotteryCount;
+        }
+    }
+
+    // 获取权限组对应的奖品表
+    public PrizeTable getPrizes(LotteryTier tier) {
+        switch (tier) {
+            case OP:
+                return opPrizes;
+            case MEMBER:
+                return memberPrizes;
+            default:
+                return prizes;
+        }
+    }
+}
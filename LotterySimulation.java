@@ -0,0 +1,125 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// 模拟大量抽奖并统计奖品分布，只计算结果，不执行命令、不扣减库存、不访问数据库
+// 抽奖次数按段拆分为 fork-join 任务，每段使用独立拆分的随机数流，相当于一名从零开始连续抽奖的玩家
+public class LotterySimulation {
+
+    // 每个任务直接模拟的最大抽奖次数，超过时继续拆分
+    private static final long LEAF_DRAWS = 1 << 16;
+
+    // 被模拟的奖品表
+    private final PrizeTable prizes;
+    // 保底抽奖次数
+    private final int guaranteeCount;
+
+    public LotterySimulation(PrizeTable prizes, int guaranteeCount) {
+        this.prizes = prizes;
+        this.guaranteeCount = guaranteeCount;
+    }
+
+    // 在 pool 中执行 draws 次模拟抽奖，阻塞直到完成，不能在主线程调用
+    public Result run(ForkJoinPool pool, long draws, long seed) {
+        return pool.invoke(new Segment(new SplittableRandom(seed), draws));
+    }
+
+    // 一段连续的抽奖
+    private class Segment extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SplittableRandom random;
+        private final long draws;
+
+        private Segment(SplittableRandom random, long draws) {
+            this.random = random;
+            this.draws = draws;
+        }
+
+        @Override
+        protected Result compute() {
+            if (draws > LEAF_DRAWS) {
+                long half = draws / 2;
+                // 先拆分出子任务的随机数流，两段结果互不相关且可以复现
+                Segment left = new Segment(random.split(), half);
+                Segment right = new Segment(random, draws - half);
+                left.fork();
+                Result result = right.compute();
+                result.merge(left.join());
+                return result;
+            }
+            Result result = new Result(prizes.size());
+            int lotteryCount = 0;
+            boolean guarantee = false;
+            // 与 LotteryPlugin 中的抽奖逻辑一致
+            for (long i = 0; i < draws; i++) {
+                if (guarantee) {
+                    result.guaranteeWins++;
+                    guarantee = false;
+                    lotteryCount = 0;
+                } else {
+                    result.slotCounts[prizes.sampleSlot(random)]++;
+                    if (lotteryCount + 1 >= guaranteeCount) {
+                        guarantee = true;
+                        result.guaranteeTriggers++;
+                    }
+                }
+                lotteryCount++;
+            }
+            result.draws = draws;
+            return result;
+        }
+    }
+
+    // 模拟结果，合并后只读
+    public static class Result {
+
+        // 总抽奖次数
+        private long draws;
+        // 从奖品表抽取时每个槽位被抽中的次数，最后一个槽位为未中奖
+        private final long[] slotCounts;
+        // 保底抽奖次数
+        private long guaranteeWins;
+        // 触发保底的次数
+        private long guaranteeTriggers;
+
+        private Result(int prizeCount) {
+            this.slotCounts = new long[prizeCount + 1];
+        }
+
+        private void merge(Result other) {
+            draws += other.draws;
+            for (int i = 0; i < slotCounts.length; i++) {
+                slotCounts[i] += other.slotCounts[i];
+            }
+            guaranteeWins += other.guaranteeWins;
+            guaranteeTriggers += other.guaranteeTriggers;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        // 从奖品表抽取的次数，不含保底抽奖
+        public long getSampledDraws() {
+            return draws - guaranteeWins;
+        }
+
+        public long getWins(int slot) {
+            return slotCounts[slot];
+        }
+
+        public long getLosses() {
+            return slotCounts[slotCounts.length - 1];
+        }
+
+        public long getGuaranteeWins() {
+            return guaranteeWins;
+        }
+
+        public long getGuaranteeTriggers() {
+            return guaranteeTriggers;
+        }
+    }
+}
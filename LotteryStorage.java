@@ -0,0 +1,1085 @@
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+// 数据存储层，所有写操作都在独立的存储线程上串行执行，避免阻塞服务器主线程
+public class LotteryStorage {
+
+    // 当前数据库结构版本
+    private static final int SCHEMA_VERSION = 6;
+    // 升级前的旧日志表
+    private static final String LEGACY_LOG_TABLE = "lottery_logs_legacy";
+
+    // 插件对象
+    private final JavaPlugin plugin;
+    // 配置文件对象
+    private final FileConfiguration config;
+    // 数据库连接池
+    private ConnectionPool pool;
+    // 存储方式，sqlite 或 mysql
+    private String storageType;
+    // 是否有多个服务器共用同一个数据库
+    private boolean sharedDatabase;
+    // 存储线程
+    private final ScheduledExecutorService executor;
+    // 待写入的抽奖结果队列，容量有限，写满时暂停抽奖
+    private final BlockingQueue<LotteryDraw> drawQueue;
+    // 写入失败、等待重试的批次，仅在存储线程上访问
+    private final List<LotteryDraw> pendingDraws = new ArrayList<>();
+    // 是否已提交按条数触发的写入任务
+    private final AtomicBoolean drawFlushScheduled = new AtomicBoolean();
+    // 限量奖品库存，未加载时为 null
+    private PrizeStockRegistry prizeStocks;
+    // 是否已提交库存写入任务
+    private final AtomicBoolean stockFlushScheduled = new AtomicBoolean();
+    // 每批写入的抽奖结果条数
+    private final int logBatchSize;
+    // 过期日志归档任务，未开启日志保留时为 null
+    private LogArchiver logArchiver;
+    // 耗时和错误统计
+    private final LotteryMetrics metrics;
+    // 存储迁移正在补复制和核对，期间暂停抽奖
+    private volatile boolean writesPaused;
+
+    public LotteryStorage(JavaPlugin plugin, FileConfiguration config, LotteryMetrics metrics) {
+        this.plugin = plugin;
+        this.config = config;
+        this.metrics = metrics;
+        this.logBatchSize = Math.max(1, config.getInt("log-batch-size", 100));
+        this.drawQueue = new ArrayBlockingQueue<>(Math.max(logBatchSize, config.getInt("log-queue-capacity", 10000)));
+        ScheduledThreadPoolExecutor storageExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "SalxLottery-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 关闭时不再等待尚未到期的延迟任务，例如数据库初始化的重试
+        storageExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = storageExecutor;
+        // 按时间定期写入抽奖结果
+        scheduleWithFixedDelay(this::flushDraws, Math.max(50, config.getLong("log-flush-interval", 1000)));
+    }
+
+    // 创建连接池并借出一次连接，数据库可以连接时返回 true；连接失败后可以再次调用重试
+    public boolean initDatabase() {
+        if (pool == null) {
+            storageType = config.getString("storage-type", "sqlite");
+            sharedDatabase = config.getBoolean("shared-database", false);
+            pool = createPool(storageType);
+            if (pool == null) {
+                plugin.getLogger().severe("无效的存储类型: " + storageType);
+                return false;
+            }
+        }
+        // 立即借出并归还一次连接，尽早发现配置错误
+        try {
+            pool.borrow().close();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("无法连接到数据库: " + e.getMessage());
+            return false;
+        }
+        plugin.getLogger().info("已连接到数据库: " + storageType);
+        return true;
+    }
+
+    // 按配置创建指定存储方式的连接池，存储方式无效时返回 null
+    private ConnectionPool createPool(String type) {
+        int statementCacheSize = Math.max(1, config.getInt("mysql.pool.statement-cache-size", 32));
+        if (type.equalsIgnoreCase("sqlite")) {
+            // SQLite 同一时间只允许一个写入者，使用单个长期连接
+            return new ConnectionPool(getSqliteUrl(), null, null,
+                    1, 0, 30_000, statementCacheSize, plugin.getLogger());
+        } else if (type.equalsIgnoreCase("mysql")) {
+            String host = config.getString("mysql.host", "localhost");
+            String port = config.getString("mysql.port", "3306");
+            String database = config.getString("mysql.database", "lottery");
+            String username = config.getString("mysql.username", "root");
+            String password = config.getString("mysql.password", "password");
+            // 使用服务端预编译语句，并把批量插入改写为多值 INSERT
+            String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useServerPrepStmts=true&rewriteBatchedStatements=true";
+            return new ConnectionPool(url, username, password,
+                    config.getInt("mysql.pool.maximum-pool-size", 4),
+                    Math.max(0, config.getLong("mysql.pool.max-lifetime", 1800)) * 1000,
+                    Math.max(100, config.getLong("mysql.pool.connection-timeout", 5000)),
+                    statementCacheSize, plugin.getLogger());
+        }
+        return null;
+    }
+
+    // SQLite 数据库地址，基准测试改为内存数据库
+    String getSqliteUrl() {
+        File databaseFile = new File(plugin.getDataFolder(), "lottery.db");
+        return "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+    }
+
+    public boolean createTables() {
+        try {
+            createSchema(pool, storageType.equalsIgnoreCase("mysql"));
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("无法创建数据库表: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 创建数据库表并执行尚未执行的结构迁移
+    private void createSchema(ConnectionPool pool, boolean mysql) throws SQLException {
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            if (mysql) {
+                statement.execute("CREATE TABLE IF NOT EXISTS player_lottery_data (" +
+                        "player_uuid VARCHAR(36) PRIMARY KEY, " +
+                        "lottery_count INT, " +
+                        "last_lottery_time BIGINT, " +
+                        "is_guarantee BOOLEAN" +
+                        ")");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_schema_version (version INT NOT NULL)");
+            } else {
+                statement.execute("CREATE TABLE IF NOT EXISTS player_lottery_data (" +
+                        "player_uuid TEXT PRIMARY KEY, " +
+                        "lottery_count INTEGER, " +
+                        "last_lottery_time INTEGER, " +
+                        "is_guarantee BOOLEAN" +
+                        ")");
+                statement.execute("CREATE TABLE IF NOT EXISTS lottery_schema_version (version INTEGER NOT NULL)");
+            }
+            int version = 0;
+            boolean versionRecorded = false;
+            try (ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM lottery_schema_version")) {
+                if (resultSet.next()) {
+                    version = resultSet.getInt(1);
+                    versionRecorded = !resultSet.wasNull();
+                }
+            }
+            if (!versionRecorded) {
+                // 版本表只有一行，之后只用 UPDATE 修改
+                statement.execute("INSERT INTO lottery_schema_version (version) VALUES (0)");
+            }
+            if (version > SCHEMA_VERSION) {
+                throw new SQLException("数据库结构版本 " + version + " 高于插件支持的版本 " + SCHEMA_VERSION + "，请更新插件");
+            }
+            // 依次执行尚未执行的迁移，每一步和它的版本号一起提交
+            // SQLite 的 DDL 可以回滚，每一步在一个事务中执行；MySQL 的 DDL 会隐式提交，每一步都可以重复执行，中途失败后下次启动从该步重新开始
+            Connection jdbc = connection.getConnection();
+            while (version < SCHEMA_VERSION) {
+                int next = version + 1;
+                if (!mysql) {
+                    jdbc.setAutoCommit(false);
+                }
+                try {
+                    migrate(connection, statement, next, mysql);
+                    statement.executeUpdate("UPDATE lottery_schema_version SET version = " + next);
+                    if (!mysql) {
+                        jdbc.commit();
+                    }
+                } catch (SQLException e) {
+                    connection.markBrokenIfFatal(e);
+                    if (!mysql) {
+                        try {
+                            jdbc.rollback();
+                        } catch (SQLException rollbackException) {
+                            e.addSuppressed(rollbackException);
+                        }
+                    }
+                    throw e;
+                } finally {
+                    if (!mysql) {
+                        try {
+                            jdbc.setAutoCommit(true);
+                        } catch (SQLException e) {
+                            connection.markBrokenIfFatal(e);
+                        }
+                    }
+                }
+                version = next;
+                plugin.getLogger().info("数据库结构已升级到版本 " + version);
+            }
+        }
+    }
+
+    // 数据库结构迁移，只能追加新版本，不能修改已发布的版本
+    // 在 MySQL 上中途失败时已执行的语句不会回滚，每条语句执行前先检查是否已经执行过
+    private void migrate(PooledConnection connection, Statement statement, int version, boolean mysql) throws SQLException {
+        switch (version) {
+            case 1:
+                // 旧日志表按玩家名称和命令文本记录，改名保留，启动后由 LegacyLogConverter 分批转换到新表
+                if (tableExists(connection, "lottery_logs") && columnExists(connection, "lottery_logs", "player_name")) {
+                    statement.execute("ALTER TABLE lottery_logs RENAME TO " + LEGACY_LOG_TABLE);
+                }
+                // 紧凑的日志表，只记录玩家 UUID、时间、权限组和奖品编号
+                if (mysql) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS lottery_logs (" +
+                            "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                            "player_uuid BINARY(16) NOT NULL, " +
+                            "draw_time BIGINT NOT NULL, " +
+                            "tier TINYINT NOT NULL, " +
+                            "prize_id SMALLINT NOT NULL, " +
+                            "INDEX idx_lottery_logs_player_time (player_uuid, draw_time, id)" +
+                            ")");
+                } else {
+                    statement.execute("CREATE TABLE IF NOT EXISTS lottery_logs (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "player_uuid BLOB NOT NULL, " +
+                            "draw_time INTEGER NOT NULL, " +
+                            "tier INTEGER NOT NULL, " +
+                            "prize_id INTEGER NOT NULL" +
+                            ")");
+                    statement.execute("CREATE INDEX IF NOT EXISTS idx_lottery_logs_player_time ON lottery_logs (player_uuid, draw_time, id)");
+                }
+                break;
+            case 2:
+                // 版本号，每次修改玩家状态时加一，用于多服之间的条件更新
+                if (!columnExists(connection, "player_lottery_data", "version")) {
+                    statement.execute("ALTER TABLE player_lottery_data ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+                }
+                break;
+            case 3:
+                // 限量奖品在当前周期已发放的数量
+                statement.execute("CREATE TABLE IF NOT EXISTS prize_stock (" +
+                        "prize_key VARCHAR(64) PRIMARY KEY, " +
+                        "period BIGINT NOT NULL, " +
+                        "claimed INT NOT NULL" +
+                        ")");
+                break;
+            case 4:
+                // 按天或按周统计的抽奖次数及其周期编号，周期过期时视为 0，在玩家下次抽奖时改写，不需要定时清零
+                if (!columnExists(connection, "player_lottery_data", "window_count")) {
+                    statement.execute("ALTER TABLE player_lottery_data ADD COLUMN window_count INT NOT NULL DEFAULT 0");
+                }
+                if (!columnExists(connection, "player_lottery_data", "window_epoch")) {
+                    statement.execute("ALTER TABLE player_lottery_data ADD COLUMN window_epoch BIGINT NOT NULL DEFAULT 0");
+                }
+                break;
+            case 5:
+                // 每次抽奖的随机数种子和抽奖时的配置快照编号，用于重现抽奖，旧日志为 0
+                if (!columnExists(connection, "lottery_logs", "seed")) {
+                    statement.execute("ALTER TABLE lottery_logs ADD COLUMN seed BIGINT NOT NULL DEFAULT 0");
+                }
+                if (!columnExists(connection, "lottery_logs", "config_id")) {
+                    statement.execute("ALTER TABLE lottery_logs ADD COLUMN config_id INT NOT NULL DEFAULT 0");
+                }
+                // 抽奖相关配置的快照，按内容的 SHA-256 去重
+                if (mysql) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS lottery_config_snapshots (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "hash CHAR(64) NOT NULL UNIQUE, " +
+                            "created_time BIGINT NOT NULL, " +
+                            "content MEDIUMTEXT NOT NULL" +
+                            ")");
+                } else {
+                    statement.execute("CREATE TABLE IF NOT EXISTS lottery_config_snapshots (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "hash TEXT NOT NULL UNIQUE, " +
+                            "created_time INTEGER NOT NULL, " +
+                            "content TEXT NOT NULL" +
+                            ")");
+                }
+                break;
+            case 6:
+                // 累计抽奖次数，不随保底重置，累计抽奖排行榜直接读取，不需要在启动时扫描日志
+                if (!columnExists(connection, "player_lottery_data", "total_draws")) {
+                    statement.execute("ALTER TABLE player_lottery_data ADD COLUMN total_draws BIGINT NOT NULL DEFAULT 0");
+                }
+                // 从已有日志统计，写入绝对值，中断后重新执行结果相同
+                Map<UUID, Long> totals = new HashMap<>();
+                try (ResultSet resultSet = statement.executeQuery("SELECT player_uuid, COUNT(*) FROM lottery_logs GROUP BY player_uuid")) {
+                    while (resultSet.next()) {
+                        totals.put(toUUID(resultSet.getBytes(1)), resultSet.getLong(2));
+                    }
+                }
+                if (!totals.isEmpty()) {
+                    PreparedStatement backfill = connection.prepareStatement(mysql
+                            ? "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, total_draws) VALUES (?,0,0,0,?) " +
+                            "ON DUPLICATE KEY UPDATE total_draws = VALUES(total_draws)"
+                            : "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, total_draws) VALUES (?,0,0,0,?) " +
+                            "ON CONFLICT(player_uuid) DO UPDATE SET total_draws = excluded.total_draws");
+                    for (Map.Entry<UUID, Long> total : totals.entrySet()) {
+                        backfill.setString(1, total.getKey().toString());
+                        backfill.setLong(2, total.getValue());
+                        backfill.addBatch();
+                    }
+                    backfill.executeBatch();
+                }
+                // 按时间范围统计每名玩家抽中的奖品，周榜和日志导出只在索引上扫描时间范围内的日志
+                if (mysql) {
+                    if (!indexExists(connection, "lottery_logs", "idx_lottery_logs_time")) {
+                        statement.execute("CREATE INDEX idx_lottery_logs_time ON lottery_logs (draw_time, id, player_uuid, tier, prize_id)");
+                    }
+                } else {
+                    statement.execute("CREATE INDEX IF NOT EXISTS idx_lottery_logs_time ON lottery_logs (draw_time, id, player_uuid, tier, prize_id)");
+                }
+                break;
+            default:
+                throw new SQLException("未知的数据库结构版本: " + version);
+        }
+    }
+
+    // 把每名玩家的抽奖次数累加到累计抽奖次数，还没有数据行的玩家插入一行
+    static void addTotalDraws(PooledConnection connection, Map<UUID, Long> draws, boolean mysql) throws SQLException {
+        if (draws.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = connection.prepareStatement(mysql
+                ? "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, total_draws) VALUES (?,0,0,0,?) " +
+                "ON DUPLICATE KEY UPDATE total_draws = total_draws + VALUES(total_draws)"
+                : "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, total_draws) VALUES (?,0,0,0,?) " +
+                "ON CONFLICT(player_uuid) DO UPDATE SET total_draws = player_lottery_data.total_draws + excluded.total_draws");
+        for (Map.Entry<UUID, Long> entry : draws.entrySet()) {
+            statement.setString(1, entry.getKey().toString());
+            statement.setLong(2, entry.getValue());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    private static boolean columnExists(PooledConnection connection, String table, String column) throws SQLException {
+        Connection jdbc = connection.getConnection();
+        try (ResultSet resultSet = jdbc.getMetaData().getColumns(jdbc.getCatalog(), null, table, null)) {
+            while (resultSet.next()) {
+                if (table.equalsIgnoreCase(resultSet.getString("TABLE_NAME")) && column.equalsIgnoreCase(resultSet.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean indexExists(PooledConnection connection, String table, String index) throws SQLException {
+        Connection jdbc = connection.getConnection();
+        try (ResultSet resultSet = jdbc.getMetaData().getIndexInfo(jdbc.getCatalog(), null, table, false, false)) {
+            while (resultSet.next()) {
+                if (index.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean tableExists(PooledConnection connection, String table) throws SQLException {
+        Connection jdbc = connection.getConnection();
+        try (ResultSet resultSet = jdbc.getMetaData().getTables(jdbc.getCatalog(), null, table, null)) {
+            while (resultSet.next()) {
+                if (table.equalsIgnoreCase(resultSet.getString("TABLE_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // 用数据库中的发放数量初始化配置中已声明的库存，之后在存储线程上定期写入
+    public void loadPrizeStock(PrizeStockRegistry stocks) {
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT prize_key, period, claimed FROM prize_stock")) {
+            while (resultSet.next()) {
+                String key = resultSet.getString("prize_key");
+                PrizeStock stock = stocks.find(key);
+                if (stock == null) {
+                    // 奖品已删除，或未指定 id 的限量奖品调整了顺序，发放数量不会计入其他奖品
+                    plugin.getLogger().warning("数据库中的奖品库存没有对应的限量奖品: " + key);
+                    continue;
+                }
+                stock.reconcile(resultSet.getLong("period"), resultSet.getInt("claimed"));
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法加载奖品库存: " + e.getMessage());
+        }
+        prizeStocks = stocks;
+        stocks.setFlushRequester(() -> {
+            if (stockFlushScheduled.compareAndSet(false, true)) {
+                executor.execute(this::flushPrizeStock);
+            }
+        });
+        scheduleWithFixedDelay(this::flushPrizeStock, Math.max(1, config.getLong("player-data-flush-interval", 5)) * 1000);
+    }
+
+    // 写入各奖品新增的发放数量，数据库端累加，共享数据库时同时读回其他服务器的发放数量
+    private void flushPrizeStock() {
+        stockFlushScheduled.set(false);
+        if (pool == null || prizeStocks == null) {
+            return;
+        }
+        Map<PrizeStock, Long> snapshots = new HashMap<>();
+        for (PrizeStock stock : prizeStocks.getStocks()) {
+            long snapshot = stock.getState();
+            if (sharedDatabase || snapshot != stock.getPersisted()) {
+                snapshots.put(stock, snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        Map<String, long[]> written = new HashMap<>();
+        String sql = storageType.equalsIgnoreCase("mysql")
+                ? "INSERT INTO prize_stock (prize_key, period, claimed) VALUES (?,?,?) " +
+                  "ON DUPLICATE KEY UPDATE claimed = IF(period = VALUES(period), claimed + ?, VALUES(claimed)), period = VALUES(period)"
+                : "INSERT INTO prize_stock (prize_key, period, claimed) VALUES (?,?,?) " +
+                  "ON CONFLICT(prize_key) DO UPDATE SET " +
+                  "claimed = CASE WHEN prize_stock.period = excluded.period THEN prize_stock.claimed + ? ELSE excluded.claimed END, " +
+                  "period = excluded.period";
+        try {
+            inTransaction(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (Map.Entry<PrizeStock, Long> entry : snapshots.entrySet()) {
+                    long snapshot = entry.getValue();
+                    statement.setString(1, entry.getKey().getKey());
+                    statement.setLong(2, PrizeStock.epochOf(snapshot));
+                    statement.setInt(3, PrizeStock.claimedOf(snapshot));
+                    statement.setInt(4, entry.getKey().getUnpersisted(snapshot));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                if (sharedDatabase) {
+                    try (Statement select = connection.getConnection().createStatement();
+                         ResultSet resultSet = select.executeQuery("SELECT prize_key, period, claimed FROM prize_stock")) {
+                        while (resultSet.next()) {
+                            written.put(resultSet.getString("prize_key"), new long[]{resultSet.getLong("period"), resultSet.getInt("claimed")});
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法写入奖品库存: " + e.getMessage());
+            return;
+        }
+        for (Map.Entry<PrizeStock, Long> entry : snapshots.entrySet()) {
+            long snapshot = entry.getValue();
+            long[] row = written.get(entry.getKey().getKey());
+            // 数据库中多出的数量来自其他服务器
+            int extra = row != null && row[0] == PrizeStock.epochOf(snapshot) ? (int) Math.max(0, row[1] - PrizeStock.claimedOf(snapshot)) : 0;
+            entry.getKey().markPersisted(snapshot, extra);
+        }
+    }
+
+    // 启动过期日志归档任务，保留天数为 0 时不归档
+    public void startLogRetention() {
+        long retentionDays = config.getLong("log-retention-days", 0);
+        if (pool == null || retentionDays <= 0) {
+            return;
+        }
+        logArchiver = new LogArchiver(plugin, pool, executor, new File(plugin.getDataFolder(), "archive"),
+                Math.max(100, config.getInt("log-archive-chunk-size", 5000)));
+        long retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        // 启动后立即检查一次，之后每小时检查一次
+        executor.execute(() -> archiveExpiredLogs(retentionMillis));
+        scheduleWithFixedDelay(() -> archiveExpiredLogs(retentionMillis), TimeUnit.HOURS.toMillis(1));
+    }
+
+    private void archiveExpiredLogs(long retentionMillis) {
+        if (logArchiver.isRunning()) {
+            return;
+        }
+        logArchiver.archive("lottery_logs", "draw_time", System.currentTimeMillis() - retentionMillis);
+    }
+
+    // 存在升级前的旧日志表时，在存储线程上分批转换到新日志表，奖品按 settings 中的命令匹配
+    // playerResolver 按玩家名称查找 UUID，在存储线程上调用，不能访问网络
+    public void startLegacyLogConversion(LotterySettings settings, Function<String, UUID> playerResolver) {
+        executor.execute(() -> {
+            try (PooledConnection connection = pool.borrow()) {
+                if (!tableExists(connection, LEGACY_LOG_TABLE)) {
+                    return;
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("无法转换旧抽奖日志: " + e.getMessage());
+                return;
+            }
+            plugin.getLogger().info("开始转换旧抽奖日志表: " + LEGACY_LOG_TABLE);
+            new LegacyLogConverter(plugin, pool, executor, LEGACY_LOG_TABLE, storageType.equalsIgnoreCase("mysql"),
+                    Math.max(100, config.getInt("legacy-log-chunk-size", 5000)), settings, playerResolver).start();
+        });
+    }
+
+    // 正在使用的存储方式，数据库初始化前按配置返回
+    public String getStorageType() {
+        return storageType != null ? storageType : config.getString("storage-type", "sqlite");
+    }
+
+    // 把正在使用的存储方式中的数据按每批 chunkSize 行复制到 to，目标按当前配置连接
+    // 只有 sqlite 和 mysql 两种存储方式，目标不能是正在使用的一种，源库总是现有连接池
+    // 第一轮复制时照常抽奖；补复制和核对在存储线程上进行，期间日志、库存、玩家数据的写回和日志归档都不会执行，
+    // 多服共享数据库时直接写入的抽奖也通过 isWritesPaused 暂停；其他服务器仍会修改共享库中的玩家数据，需要先停止
+    // 每轮复制前在存储线程上写回 flushPlayerData 中的玩家数据以及待写入的日志和库存
+    // 阻塞直到完成，不能在主线程或存储线程调用
+    public List<StorageMigrator.TableResult> migrateStorage(String to, int chunkSize, Runnable flushPlayerData,
+                                                            ObjLongConsumer<String> progress) throws SQLException {
+        if (to.equalsIgnoreCase(getStorageType())) {
+            throw new SQLException("不能迁移到正在使用的存储方式: " + to);
+        }
+        ConnectionPool target = createPool(to);
+        if (target == null) {
+            throw new SQLException("无效的存储类型: " + to);
+        }
+        try {
+            // 目标的表结构升级到当前版本
+            createSchema(target, to.equalsIgnoreCase("mysql"));
+            Runnable flush = () -> {
+                flushPlayerData.run();
+                flushDraws();
+                flushPrizeStock();
+            };
+            StorageMigrator migrator = new StorageMigrator(pool, target, storageType.toLowerCase(Locale.ROOT), chunkSize);
+            CompletableFuture.runAsync(flush, executor).join();
+            migrator.copyAll(progress);
+            writesPaused = true;
+            try {
+                CompletableFuture<List<StorageMigrator.TableResult>> finished = new CompletableFuture<>();
+                executor.execute(() -> {
+                    try {
+                        flush.run();
+                        finished.complete(migrator.finish(progress));
+                    } catch (SQLException | RuntimeException e) {
+                        finished.completeExceptionally(e);
+                    }
+                });
+                return finished.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            } finally {
+                writesPaused = false;
+            }
+        } finally {
+            target.close();
+        }
+    }
+
+    // 迁移核对期间暂停抽奖，避免源库在核对时被修改
+    public boolean isWritesPaused() {
+        return writesPaused;
+    }
+
+    // 创建每批读取 fetchSize 条的抽奖日志导出任务，导出在调用者的线程上进行
+    public LogExporter createLogExporter(int fetchSize) {
+        return new LogExporter(pool, fetchSize);
+    }
+
+    // 在存储线程上执行任务
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    // 在存储线程上延迟执行任务
+    public void schedule(Runnable task, long delayMillis) {
+        executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 在存储线程上按固定间隔执行任务
+    public void scheduleWithFixedDelay(Runnable task, long intervalMillis) {
+        executor.scheduleWithFixedDelay(() -> {
+            // 捕获所有异常，避免定时任务因一次异常被取消
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("存储线程任务执行失败: " + e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 写入队列已满时返回 true，调用方应暂停新的抽奖
+    public boolean isLogQueueFull() {
+        return drawQueue.remainingCapacity() == 0;
+    }
+
+    // 等待写入的抽奖结果数量
+    public int getLogQueueSize() {
+        return drawQueue.size();
+    }
+
+    // 把抽奖结果放入写入队列，队列已满时立即返回 false，不等待存储线程，调用方应放弃本次抽奖
+    public boolean queueDraw(LotteryDraw draw) {
+        if (!drawQueue.offer(draw)) {
+            return false;
+        }
+        // 积累到一批时立即触发写入
+        if (drawQueue.size() >= logBatchSize && drawFlushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flushDraws);
+        }
+        return true;
+    }
+
+    private void flushDraws() {
+        drawFlushScheduled.set(false);
+        if (pool == null) {
+            return;
+        }
+        while (true) {
+            // 先重试上次写入失败的批次，保证日志顺序
+            if (pendingDraws.isEmpty()) {
+                drawQueue.drainTo(pendingDraws, logBatchSize);
+                if (pendingDraws.isEmpty()) {
+                    return;
+                }
+            }
+            if (!writeDraws(pendingDraws)) {
+                return;
+            }
+            pendingDraws.clear();
+        }
+    }
+
+    // 在一个事务中写入一批抽奖涉及的玩家状态和全部日志，只在存储线程和基准测试中调用
+    boolean writeDraws(List<LotteryDraw> draws) {
+        // 同一玩家在一批中只写一次状态
+        Map<PlayerLotteryData, PlayerLotteryData> snapshots = new IdentityHashMap<>();
+        List<LotteryLogRecord> records = new ArrayList<>();
+        for (LotteryDraw draw : draws) {
+            PlayerLotteryData data = draw.getPlayerData();
+            if (!snapshots.containsKey(data)) {
+                snapshots.put(data, data.snapshotIfDirty());
+            }
+            records.addAll(draw.getLogs());
+        }
+        snapshots.values().removeIf(Objects::isNull);
+        long start = System.nanoTime();
+        try {
+            inTransaction(connection -> {
+                upsertPlayerData(connection, snapshots.values());
+                insertLogs(connection, records);
+            });
+            metrics.record(LotteryMetrics.Stage.DB_WRITE, start);
+            return true;
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法记录抽奖日志: " + e.getMessage());
+            // 合并回未写入的玩家状态，等待重试
+            for (Map.Entry<PlayerLotteryData, PlayerLotteryData> entry : snapshots.entrySet()) {
+                entry.getKey().restore(entry.getValue());
+            }
+            return false;
+        }
+    }
+
+    private void insertLogs(PooledConnection connection, List<LotteryLogRecord> records) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("INSERT INTO lottery_logs (player_uuid, draw_time, tier, prize_id, seed, config_id) VALUES (?,?,?,?,?,?)");
+        for (LotteryLogRecord record : records) {
+            statement.setBytes(1, toBytes(record.getPlayerUUID()));
+            statement.setLong(2, record.getTime());
+            statement.setInt(3, record.getTier().ordinal());
+            statement.setInt(4, record.getPrizeId());
+            statement.setLong(5, record.getSeed());
+            statement.setInt(6, record.getConfigId());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    // 从数据库读取玩家抽奖数据，新玩家返回初始数据，查询失败时返回 null，不能把失败当作新玩家
+    // 共享数据库时为新玩家插入初始行，之后的条件更新总有一行可改
+    // 可在任意线程调用，从连接池借用独立连接，不与存储线程争用
+    public PlayerLotteryData loadPlayerData(UUID playerUUID) {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PlayerLotteryData data = selectPlayerData(connection, playerUUID);
+                if (data == null && sharedDatabase) {
+                    PreparedStatement insert = connection.prepareStatement(storageType.equalsIgnoreCase("mysql")
+                            ? "INSERT IGNORE INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee) VALUES (?,0,0,0)"
+                            : "INSERT OR IGNORE INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee) VALUES (?,0,0,0)");
+                    insert.setString(1, playerUUID.toString());
+                    insert.executeUpdate();
+                    // 其他服务器可能同时插入，重新读取实际的行
+                    data = selectPlayerData(connection, playerUUID);
+                }
+                return data != null ? data : new PlayerLotteryData(playerUUID, 0, 0, false);
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法加载玩家抽奖数据: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private PlayerLotteryData selectPlayerData(PooledConnection connection, UUID playerUUID) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("SELECT lottery_count, last_lottery_time, is_guarantee, window_count, window_epoch, version, total_draws FROM player_lottery_data WHERE player_uuid = ?");
+        statement.setString(1, playerUUID.toString());
+        try (ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next()) {
+                return new PlayerLotteryData(playerUUID,
+                        resultSet.getInt("lottery_count"),
+                        resultSet.getLong("last_lottery_time"),
+                        resultSet.getBoolean("is_guarantee"),
+                        resultSet.getInt("window_count"),
+                        resultSet.getLong("window_epoch"),
+                        resultSet.getLong("version"),
+                        resultSet.getLong("total_draws"));
+            }
+            return null;
+        }
+    }
+
+    // 以读取时的版本号为条件写入抽奖后的玩家状态，并在同一个事务中写入本次抽奖的日志，不加锁
+    // 其他服务器在此期间修改过该玩家时版本号不一致，不会写入，返回 CONFLICT；日志写入失败时玩家状态一并回滚
+    public Reservation reserveDraw(UUID playerUUID, long version, LotteryOutcome outcome) {
+        AtomicBoolean reserved = new AtomicBoolean();
+        try {
+            inTransaction(connection -> {
+                PreparedStatement statement = connection.prepareStatement("UPDATE player_lottery_data " +
+                        "SET lottery_count = ?, last_lottery_time = ?, is_guarantee = ?, window_count = ?, window_epoch = ?, " +
+                        "total_draws = total_draws + ?, version = version + 1 " +
+                        "WHERE player_uuid = ? AND version = ?");
+                statement.setInt(1, outcome.getLotteryCount());
+                statement.setLong(2, outcome.getTime());
+                statement.setBoolean(3, outcome.isGuarantee());
+                statement.setInt(4, outcome.getWindowCount());
+                statement.setLong(5, outcome.getWindowEpoch());
+                statement.setInt(6, outcome.getLogs().size());
+                statement.setString(7, playerUUID.toString());
+                statement.setLong(8, version);
+                if (statement.executeUpdate() == 1) {
+                    insertLogs(connection, outcome.getLogs());
+                    reserved.set(true);
+                }
+            });
+            return reserved.get() ? Reservation.RESERVED : Reservation.CONFLICT;
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法写入玩家抽奖数据: " + e.getMessage());
+            return Reservation.FAILED;
+        }
+    }
+
+    public boolean isSharedDatabase() {
+        return sharedDatabase;
+    }
+
+    // 读取游标中玩家第 page 页的抽奖记录，按时间倒序，多读一条用于判断是否还有下一页
+    // 可在任意线程调用，查询失败时返回 null
+    public List<LotteryHistoryEntry> loadHistory(HistoryCursor cursor, int page, int pageSize) {
+        byte[] playerUUID = toBytes(cursor.getPlayerUUID());
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                // 目标页之前的页还没有访问过时，从最后一个已知位置逐页定位，每次只在索引上跳过一页
+                PreparedStatement seek = connection.prepareStatement("SELECT draw_time, id FROM lottery_logs " +
+                        "WHERE player_uuid = ? AND draw_time <= ? AND (draw_time < ? OR id < ?) " +
+                        "ORDER BY draw_time DESC, id DESC LIMIT 1 OFFSET ?");
+                long[] start = cursor.seekPageStart(page, pageStart -> {
+                    seek.setBytes(1, playerUUID);
+                    seek.setLong(2, pageStart[0]);
+                    seek.setLong(3, pageStart[0]);
+                    seek.setLong(4, pageStart[1]);
+                    seek.setInt(5, pageSize - 1);
+                    try (ResultSet resultSet = seek.executeQuery()) {
+                        return resultSet.next() ? new long[]{resultSet.getLong(1), resultSet.getLong(2)} : null;
+                    }
+                });
+                if (start == null) {
+                    // 目标页超出了记录总数
+                    return Collections.emptyList();
+                }
+                PreparedStatement statement = connection.prepareStatement("SELECT id, draw_time, tier, prize_id FROM lottery_logs " +
+                        "WHERE player_uuid = ? AND draw_time <= ? AND (draw_time < ? OR id < ?) " +
+                        "ORDER BY draw_time DESC, id DESC LIMIT ?");
+                statement.setBytes(1, playerUUID);
+                statement.setLong(2, start[0]);
+                statement.setLong(3, start[0]);
+                statement.setLong(4, start[1]);
+                statement.setInt(5, pageSize + 1);
+                List<LotteryHistoryEntry> entries = new ArrayList<>(pageSize + 1);
+                LotteryTier[] tiers = LotteryTier.values();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        int tier = resultSet.getInt("tier");
+                        entries.add(new LotteryHistoryEntry(resultSet.getLong("id"), resultSet.getLong("draw_time"),
+                                tier >= 0 && tier < tiers.length ? tiers[tier] : LotteryTier.DEFAULT, resultSet.getInt("prize_id")));
+                    }
+                }
+                if (entries.size() >= pageSize) {
+                    LotteryHistoryEntry last = entries.get(pageSize - 1);
+                    cursor.setPageEnd(page, last.getTime(), last.getId());
+                }
+                return entries;
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法查询抽奖记录: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 读取每名玩家的累计抽奖次数
+    // 用于启动时加载累计抽奖排行榜，可在任意线程调用，查询失败时返回 null
+    public Map<UUID, Long> loadDrawTotals() {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PreparedStatement statement = connection.prepareStatement("SELECT player_uuid, total_draws FROM player_lottery_data WHERE total_draws > 0");
+                Map<UUID, Long> totals = new HashMap<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        totals.put(UUID.fromString(resultSet.getString(1)), resultSet.getLong(2));
+                    }
+                }
+                return totals;
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法读取累计抽奖次数: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 统计每个玩家在 [since, before) 之间抽中 filter 接受的奖品的次数
+    // 用于启动时加载周期排行榜，可在任意线程调用，查询失败时返回 null
+    public Map<UUID, Long> countDraws(long since, long before, BiPredicate<LotteryTier, Integer> filter) {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PreparedStatement statement = connection.prepareStatement("SELECT player_uuid, tier, prize_id, COUNT(*) FROM lottery_logs " +
+                        "WHERE draw_time >= ? AND draw_time < ? AND prize_id >= 0 GROUP BY player_uuid, tier, prize_id");
+                statement.setLong(1, since);
+                statement.setLong(2, before);
+                Map<UUID, Long> counts = new HashMap<>();
+                LotteryTier[] tiers = LotteryTier.values();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        int tier = resultSet.getInt(2);
+                        if (tier < 0 || tier >= tiers.length || !filter.test(tiers[tier], resultSet.getInt(3))) {
+                            continue;
+                        }
+                        counts.merge(toUUID(resultSet.getBytes(1)), resultSet.getLong(4), Long::sum);
+                    }
+                }
+                return counts;
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法统计抽奖次数: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 按编号查询一条抽奖日志及其配置快照，不存在时返回空列表
+    // 可在任意线程调用，查询失败时返回 null
+    public List<LotteryAuditRecord> loadAuditRecord(long drawId) {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PreparedStatement statement = connection.prepareStatement("SELECT l.id, l.player_uuid, l.draw_time, l.tier, l.prize_id, l.seed, s.content " +
+                        "FROM lottery_logs l LEFT JOIN lottery_config_snapshots s ON s.id = l.config_id WHERE l.id = ?");
+                statement.setLong(1, drawId);
+                LotteryTier[] tiers = LotteryTier.values();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return Collections.emptyList();
+                    }
+                    int tier = resultSet.getInt("tier");
+                    return Collections.singletonList(new LotteryAuditRecord(resultSet.getLong("id"), toUUID(resultSet.getBytes("player_uuid")),
+                            resultSet.getLong("draw_time"), tier >= 0 && tier < tiers.length ? tiers[tier] : LotteryTier.DEFAULT,
+                            resultSet.getInt("prize_id"), resultSet.getLong("seed"), resultSet.getString("content")));
+                }
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法查询抽奖记录: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 保存配置快照并返回编号，内容相同的快照只保存一次
+    // 可在任意线程调用，保存失败时返回 0，之后的抽奖日志无法重现
+    public int saveConfigSnapshot(String content) {
+        if (pool == null) {
+            return 0;
+        }
+        String hash = sha256(content);
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PreparedStatement insert = connection.prepareStatement(storageType.equalsIgnoreCase("mysql")
+                        ? "INSERT IGNORE INTO lottery_config_snapshots (hash, created_time, content) VALUES (?,?,?)"
+                        : "INSERT OR IGNORE INTO lottery_config_snapshots (hash, created_time, content) VALUES (?,?,?)");
+                insert.setString(1, hash);
+                insert.setLong(2, System.currentTimeMillis());
+                insert.setString(3, content);
+                insert.executeUpdate();
+                PreparedStatement select = connection.prepareStatement("SELECT id FROM lottery_config_snapshots WHERE hash = ?");
+                select.setString(1, hash);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法保存配置快照: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static String sha256(String content) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public boolean savePlayerData(List<PlayerLotteryData> snapshots) {
+        long start = System.nanoTime();
+        try {
+            inTransaction(connection -> upsertPlayerData(connection, snapshots));
+            metrics.record(LotteryMetrics.Stage.DB_WRITE, start);
+            return true;
+        } catch (SQLException e) {
+            metrics.recordDbError();
+            plugin.getLogger().severe("无法写回玩家抽奖数据: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 每个玩家一条插入或更新语句，抽奖次数在数据库端累加，重置后写入绝对值
+    private void upsertPlayerData(PooledConnection connection, Collection<PlayerLotteryData> snapshots) throws SQLException {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        String sql;
+        if (storageType.equalsIgnoreCase("mysql")) {
+            sql = "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, window_count, window_epoch, total_draws) VALUES (?,?,?,?,?,?,?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "lottery_count = IF(?, VALUES(lottery_count), lottery_count + ?), " +
+                    "total_draws = total_draws + VALUES(total_draws), " +
+                    "last_lottery_time = VALUES(last_lottery_time), " +
+                    "is_guarantee = VALUES(is_guarantee), " +
+                    "window_count = VALUES(window_count), " +
+                    "window_epoch = VALUES(window_epoch), " +
+                    "version = version + 1";
+        } else {
+            sql = "INSERT INTO player_lottery_data (player_uuid, lottery_count, last_lottery_time, is_guarantee, window_count, window_epoch, total_draws) VALUES (?,?,?,?,?,?,?) " +
+                    "ON CONFLICT(player_uuid) DO UPDATE SET " +
+                    "lottery_count = CASE WHEN ? THEN excluded.lottery_count ELSE player_lottery_data.lottery_count + ? END, " +
+                    "total_draws = player_lottery_data.total_draws + excluded.total_draws, " +
+                    "last_lottery_time = excluded.last_lottery_time, " +
+                    "is_guarantee = excluded.is_guarantee, " +
+                    "window_count = excluded.window_count, " +
+                    "window_epoch = excluded.window_epoch, " +
+                    "version = player_lottery_data.version + 1";
+        }
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (PlayerLotteryData snapshot : snapshots) {
+            statement.setString(1, snapshot.getPlayerUUID().toString());
+            statement.setInt(2, snapshot.getLotteryCount());
+            statement.setLong(3, snapshot.getLastLotteryTime());
+            statement.setBoolean(4, snapshot.isGuarantee());
+            statement.setInt(5, snapshot.getWindowCount());
+            statement.setLong(6, snapshot.getWindowEpoch());
+            statement.setInt(7, snapshot.getTotalDrawsDelta());
+            statement.setBoolean(8, snapshot.isLotteryCountReset());
+            statement.setInt(9, snapshot.getLotteryCountDelta());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    // 借出一个连接并在一个事务中执行写操作，失败时回滚
+    private void inTransaction(SqlWork work) throws SQLException {
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                work.run(pooled);
+                connection.commit();
+            } catch (SQLException e) {
+                pooled.markBrokenIfFatal(e);
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    pooled.markBrokenIfFatal(e);
+                }
+            }
+        }
+    }
+
+    // 写完队列中剩余的任务和日志后关闭连接池
+    public void close() {
+        executor.execute(this::flushDraws);
+        executor.execute(this::flushPrizeStock);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("存储线程未能在 30 秒内完成写入");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        int lost = pendingDraws.size() + drawQueue.size();
+        if (lost > 0) {
+            plugin.getLogger().severe("有 " + lost + " 次抽奖结果未能写入数据库");
+        }
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // 日志表中的玩家 UUID 以 16 字节二进制存储
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID toUUID(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    // 条件更新的结果
+    public enum Reservation {
+        // 写入成功
+        RESERVED,
+        // 版本号不一致，玩家状态已被其他服务器修改
+        CONFLICT,
+        // 数据库错误
+        FAILED
+    }
+
+    // 事务中执行的数据库操作
+    private interface SqlWork {
+        void run(PooledConnection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,10 @@
+// 玩家权限组，决定抽奖次数上限和使用的奖品表
+// 抽奖日志按序号存储权限组，新增权限组只能追加在末尾
+public enum LotteryTier {
+    // 普通玩家
+    DEFAULT,
+    // 会员玩家
+    MEMBER,
+    // OP 玩家
+    OP
+}
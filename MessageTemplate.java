@@ -0,0 +1,73 @@
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 预编译的消息模板，加载时完成颜色代码转换并定位 {0}、{1} 等参数位置
+public class MessageTemplate {
+
+    // 参数下标最多的位数，更长的 {数字} 超出 int 范围，按普通文本保留
+    private static final int MAX_SLOT_DIGITS = 9;
+
+    // 参数之间的文本片段，数量比参数位置多一个
+    private final String[] literals;
+    // 各参数位置对应的参数下标
+    private final int[] slots;
+    // 文本片段的总长度，用于预估输出长度
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static MessageTemplate compile(String message) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int start = 0;
+        int index = message.indexOf('{');
+        while (index >= 0) {
+            // 只识别 {数字} 形式的参数
+            int end = index + 1;
+            while (end < message.length() && Character.isDigit(message.charAt(end))) {
+                end++;
+            }
+            int digits = end - index - 1;
+            if (digits > 0 && digits <= MAX_SLOT_DIGITS && end < message.length() && message.charAt(end) == '}') {
+                literals.add(ChatColor.translateAlternateColorCodes('&', message.substring(start, index)));
+                slots.add(Integer.parseInt(message.substring(index + 1, end)));
+                start = end + 1;
+            }
+            index = message.indexOf('{', end);
+        }
+        literals.add(ChatColor.translateAlternateColorCodes('&', message.substring(start)));
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new MessageTemplate(literals.toArray(new String[0]), slotArray);
+    }
+
+    // 填入参数生成最终消息，缺少的参数保留原样
+    public String render(String... args) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder builder = new StringBuilder(literalLength + slots.length * 16);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            int slot = slots[i];
+            if (slot < args.length) {
+                builder.append(args[slot]);
+            } else {
+                builder.append('{').append(slot).append('}');
+            }
+        }
+        return builder.append(literals[slots.length]).toString();
+    }
+}
@@ -0,0 +1,88 @@
+import net.milkbowl.vault.permission.Permission;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 玩家权限组缓存，避免每次抽奖都查询权限插件
+public class PermissionTierCache {
+
+    // Vault 权限管理对象，未安装 Vault 时为 null
+    private final Permission permission;
+    // 缓存有效时间（毫秒）
+    private final long ttlMillis;
+    // 玩家权限组缓存
+    private final Map<UUID, CachedTier> tiers = new ConcurrentHashMap<>();
+    // 耗时统计
+    private final LotteryMetrics metrics;
+
+    public PermissionTierCache(Permission permission, long ttlMillis, LotteryMetrics metrics) {
+        this.permission = permission;
+        this.ttlMillis = ttlMillis;
+        this.metrics = metrics;
+    }
+
+    // 获取玩家权限组，缓存过期后仍返回旧值，由定时任务负责刷新
+    public LotteryTier getTier(Player player, LotterySettings settings) {
+        CachedTier cached = tiers.get(player.getUniqueId());
+        if (cached != null) {
+            return cached.tier;
+        }
+        return refresh(player, settings);
+    }
+
+    // 只读取缓存的权限组，不查询权限插件，可在任意线程调用；没有缓存时返回 null
+    public LotteryTier getCachedTier(UUID playerUUID) {
+        CachedTier cached = tiers.get(playerUUID);
+        return cached != null ? cached.tier : null;
+    }
+
+    // 重新查询玩家权限组并写入缓存
+    public LotteryTier refresh(Player player, LotterySettings settings) {
+        long start = System.nanoTime();
+        LotteryTier tier = resolve(player, settings);
+        metrics.record(LotteryMetrics.Stage.PERMISSION_LOOKUP, start);
+        tiers.put(player.getUniqueId(), new CachedTier(tier, System.currentTimeMillis() + ttlMillis));
+        return tier;
+    }
+
+    // 刷新缓存已过期的在线玩家
+    public void refreshExpired(Collection<? extends Player> players, LotterySettings settings) {
+        long now = System.currentTimeMillis();
+        for (Player player : players) {
+            CachedTier cached = tiers.get(player.getUniqueId());
+            if (cached == null || cached.expiresAt <= now) {
+                refresh(player, settings);
+            }
+        }
+    }
+
+    public void invalidate(UUID playerUUID) {
+        tiers.remove(playerUUID);
+    }
+
+    private LotteryTier resolve(Player player, LotterySettings settings) {
+        if (permission != null) {
+            if (permission.has(player, settings.getOpPermission())) {
+                return LotteryTier.OP;
+            } else if (permission.has(player, settings.getMemberPermission())) {
+                return LotteryTier.MEMBER;
+            }
+        }
+        return LotteryTier.DEFAULT;
+    }
+
+    // 缓存的权限组及其过期时间
+    private static final class CachedTier {
+
+        private final LotteryTier tier;
+        private final long expiresAt;
+
+        private CachedTier(LotteryTier tier, long expiresAt) {
+            this.tier = tier;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
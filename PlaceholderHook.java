@@ -1,22 +1,25 @@
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.Map;
-import java.util.UUID;
+import java.util.Locale;
 
 // PlaceholderAPI 扩展类
 public class PlaceholderHook extends PlaceholderExpansion {
 
+    // 常用小整数的字符串缓存，避免计分板频繁刷新时重复创建字符串
+    private static final String[] NUMBER_STRINGS = new String[256];
+
+    static {
+        for (int i = 0; i < NUMBER_STRINGS.length; i++) {
+            NUMBER_STRINGS[i] = Integer.toString(i);
+        }
+    }
+
     // 插件对象
-    private JavaPlugin plugin;
-    // 玩家抽奖次数映射
-    private Map<UUID, Integer> playerLotteryCount;
+    private LotteryPlugin plugin;
 
-    public PlaceholderHook(JavaPlugin plugin) {
+    public PlaceholderHook(LotteryPlugin plugin) {
         this.plugin = plugin;
-        // 从插件主类中获取玩家抽奖次数映射
-        this.playerLotteryCount = ((LotteryPlugin) plugin).getPlayerLotteryCount();
     }
 
     @Override
@@ -37,12 +40,104 @@ public class PlaceholderHook extends PlaceholderExpansion {
         return plugin.getDescription().getVersion();
     }
 
+    @Override
+    public boolean persist() {
+        // 数据均来自插件内存，PlaceholderAPI 重载时无需重新注册
+        return true;
+    }
+
     @Override
     public String onPlaceholderRequest(Player player, String params) {
-        if (params.equalsIgnoreCase("lottery_count")) {
-            // 返回玩家的抽奖次数
-            return String.valueOf(playerLotteryCount.getOrDefault(player.getUniqueId(), 0));
+        // 数据库初始化完成前返回配置的未就绪文本
+        if (!plugin.isReady()) {
+            return plugin.getSettings().getPlaceholderNotReady();
+        }
+        // 占位符不区分大小写，通常已是小写，只在含有大写字母时转换
+        if (hasUpperCase(params)) {
+            params = params.toLowerCase(Locale.ROOT);
+        }
+        // 排行榜不依赖玩家，全息图等场景下 player 可能为 null
+        if (params.startsWith("top_draws_")) {
+            return leaderboardPlaceholder(plugin.getDrawLeaderboard(), params, "top_draws_".length());
+        }
+        if (params.startsWith("top_jackpots_weekly_")) {
+            return leaderboardPlaceholder(plugin.getJackpotLeaderboard(), params, "top_jackpots_weekly_".length());
+        }
+        if (player == null) {
+            return null;
+        }
+        // 只读取内存中的玩家状态，不访问数据库
+        PlayerLotteryData data = plugin.getCachedPlayerData(player.getUniqueId());
+        LotterySettings settings = plugin.getSettings();
+        switch (params) {
+            case "lottery_count":
+                // 返回玩家的抽奖次数
+                return toString(data == null ? 0 : data.getLotteryCount());
+            case "remaining_count": {
+                // 返回玩家剩余抽奖次数，-1 表示无限制
+                // 只使用缓存的权限组，不在 PlaceholderAPI 的异步线程中查询权限插件
+                int maxLotteryCount = settings.getMaxLotteryCount(plugin.getCachedPermissionTier(player));
+                if (!settings.isLotteryCountLimitEnabled() || maxLotteryCount <= 0) {
+                    return "-1";
+                }
+                return toString(Math.max(0, maxLotteryCount - (data == null ? 0 : data.getQuotaCount(settings.getLotteryCountPeriod()))));
+            }
+            case "cooldown": {
+                // 返回剩余冷却时间（秒）
+                long elapsed = System.currentTimeMillis() - (data == null ? 0 : data.getLastLotteryTime());
+                long remaining = settings.getCooldownMillis() - elapsed;
+                return remaining > 0 ? toString(remaining / 1000) : "0";
+            }
+            case "guarantee_remaining":
+                // 返回距离触发保底还需的抽奖次数
+                if (data == null) {
+                    return toString(settings.getGuaranteeCount());
+                }
+                return data.isGuarantee() ? "0" : toString(Math.max(1, settings.getGuaranteeCount() - data.getLotteryCount()));
+            case "guarantee":
+                // 返回玩家是否处于保底状态
+                return data != null && data.isGuarantee() ? "true" : "false";
+            default:
+                return null;
+        }
+    }
+
+    // 解析 <名次>_name 或 <名次>_value，名次不存在时名称为 "-"，分数为 0
+    private static String leaderboardPlaceholder(Leaderboard leaderboard, String params, int offset) {
+        int separator = params.indexOf('_', offset);
+        if (separator < 0) {
+            return null;
+        }
+        int rank;
+        try {
+            rank = Integer.parseInt(params.substring(offset, separator));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String field = params.substring(separator + 1);
+        Leaderboard.Entry entry = leaderboard.getEntry(rank);
+        if (field.equals("name")) {
+            return entry != null ? entry.getName() : "-";
+        }
+        if (field.equals("value")) {
+            return entry != null ? toString(entry.getScore()) : "0";
         }
         return null;
     }
-}    
+
+    private static boolean hasUpperCase(String params) {
+        for (int i = 0; i < params.length(); i++) {
+            if (Character.isUpperCase(params.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toString(long value) {
+        if (value >= 0 && value < NUMBER_STRINGS.length) {
+            return NUMBER_STRINGS[(int) value];
+        }
+        return Long.toString(value);
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.UUID;
+
+// 玩家抽奖状态，玩家在线期间常驻内存，由后台任务批量写回数据库
+public class PlayerLotteryData {
+
+    // 玩家 UUID
+    private final UUID playerUUID;
+    // 抽奖次数
+    private int lotteryCount;
+    // 上次抽奖时间
+    private long lastLotteryTime;
+    // 是否处于保底状态
+    private boolean guarantee;
+    // 当前统计周期内的抽奖次数，周期过期时视为 0
+    private int windowCount;
+    // windowCount 所属的周期编号
+    private long windowEpoch;
+    // 上次写回后抽奖次数的增量，写回时在数据库端累加
+    private int lotteryCountDelta;
+    // 上次写回后抽奖次数是否被重置，重置后写回绝对值
+    private boolean lotteryCountReset;
+    // 累计抽奖次数，不随保底重置
+    private long totalDraws;
+    // 上次写回后的抽奖次数，写回时累加到数据库中的累计抽奖次数
+    private int totalDrawsDelta;
+    // 是否存在尚未写回数据库的修改
+    private boolean dirty;
+    // 数据库中的版本号，多服共享数据库时用于条件更新
+    private long version;
+    // 玩家是否在线，离线且数据已写回后会被移出缓存；加载时为离线，玩家进入服务器后才标记为在线
+    // 登录被拒绝的玩家预加载的数据不会一直留在缓存中
+    private volatile boolean online;
+
+    public PlayerLotteryData(UUID playerUUID, int lotteryCount, long lastLotteryTime, boolean guarantee) {
+        this(playerUUID, lotteryCount, lastLotteryTime, guarantee, 0, 0, 0, 0);
+    }
+
+    public PlayerLotteryData(UUID playerUUID, int lotteryCount, long lastLotteryTime, boolean guarantee,
+                             int windowCount, long windowEpoch, long version, long totalDraws) {
+        this.playerUUID = playerUUID;
+        this.lotteryCount = lotteryCount;
+        this.lastLotteryTime = lastLotteryTime;
+        this.guarantee = guarantee;
+        this.windowCount = windowCount;
+        this.windowEpoch = windowEpoch;
+        this.version = version;
+        this.totalDraws = totalDraws;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public synchronized int getLotteryCount() {
+        return lotteryCount;
+    }
+
+    // 将抽奖次数重置为指定值
+    public synchronized void setLotteryCount(int lotteryCount) {
+        this.lotteryCount = lotteryCount;
+        this.lotteryCountDelta = 0;
+        this.lotteryCountReset = true;
+        this.dirty = true;
+    }
+
+    // 增加抽奖次数
+    public synchronized void incrementLotteryCount(int amount) {
+        this.lotteryCount += amount;
+        this.lotteryCountDelta += amount;
+        this.dirty = true;
+    }
+
+    // 计入抽奖次数限制的次数，不分周期时为保底计数的抽奖次数
+    public synchronized int getQuotaCount(ResetPeriod period) {
+        if (period == ResetPeriod.NEVER) {
+            return lotteryCount;
+        }
+        return getWindowCount(period.currentEpoch());
+    }
+
+    // 指定周期内的抽奖次数，记录的周期已过期时为 0
+    public synchronized int getWindowCount(long epoch) {
+        return windowEpoch == epoch ? windowCount : 0;
+    }
+
+    public synchronized int getWindowCount() {
+        return windowCount;
+    }
+
+    public synchronized long getWindowEpoch() {
+        return windowEpoch;
+    }
+
+    public synchronized long getLastLotteryTime() {
+        return lastLotteryTime;
+    }
+
+    public synchronized void setLastLotteryTime(long lastLotteryTime) {
+        this.lastLotteryTime = lastLotteryTime;
+        this.dirty = true;
+    }
+
+    public synchronized boolean isGuarantee() {
+        return guarantee;
+    }
+
+    public synchronized void setGuarantee(boolean guarantee) {
+        this.guarantee = guarantee;
+        this.dirty = true;
+    }
+
+    public synchronized int getLotteryCountDelta() {
+        return lotteryCountDelta;
+    }
+
+    public synchronized boolean isLotteryCountReset() {
+        return lotteryCountReset;
+    }
+
+    public synchronized long getTotalDraws() {
+        return totalDraws;
+    }
+
+    public synchronized int getTotalDrawsDelta() {
+        return totalDrawsDelta;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // 应用一次抽奖的结果，等待写回数据库
+    public synchronized void applyDraws(LotteryOutcome outcome) {
+        if (outcome.isLotteryCountReset()) {
+            lotteryCount = outcome.getLotteryCount();
+            lotteryCountDelta = outcome.getLotteryCountIncrement();
+            lotteryCountReset = true;
+        } else {
+            lotteryCount += outcome.getLotteryCountIncrement();
+            lotteryCountDelta += outcome.getLotteryCountIncrement();
+        }
+        totalDraws += outcome.getLogs().size();
+        totalDrawsDelta += outcome.getLogs().size();
+        guarantee = outcome.isGuarantee();
+        lastLotteryTime = outcome.getTime();
+        windowCount = outcome.getWindowCount();
+        windowEpoch = outcome.getWindowEpoch();
+        dirty = true;
+    }
+
+    // 应用已通过条件更新写入数据库的抽奖结果，不需要再写回
+    public synchronized void applyReserved(LotteryOutcome outcome) {
+        lotteryCount = outcome.getLotteryCount();
+        totalDraws += outcome.getLogs().size();
+        guarantee = outcome.isGuarantee();
+        lastLotteryTime = outcome.getTime();
+        windowCount = outcome.getWindowCount();
+        windowEpoch = outcome.getWindowEpoch();
+        version++;
+    }
+
+    // 用数据库中的最新数据替换内存中的状态
+    public synchronized void replaceWith(PlayerLotteryData latest) {
+        lotteryCount = latest.lotteryCount;
+        lastLotteryTime = latest.lastLotteryTime;
+        guarantee = latest.guarantee;
+        windowCount = latest.windowCount;
+        windowEpoch = latest.windowEpoch;
+        version = latest.version;
+        totalDraws = latest.totalDraws;
+        lotteryCountDelta = 0;
+        lotteryCountReset = false;
+        totalDrawsDelta = 0;
+        dirty = false;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    // 如果存在未写回的修改，复制一份快照并清除脏标记和次数增量，否则返回 null
+    public synchronized PlayerLotteryData snapshotIfDirty() {
+        if (!dirty) {
+            return null;
+        }
+        PlayerLotteryData snapshot = new PlayerLotteryData(playerUUID, lotteryCount, lastLotteryTime, guarantee, windowCount, windowEpoch, version, totalDraws);
+        snapshot.lotteryCountDelta = lotteryCountDelta;
+        snapshot.lotteryCountReset = lotteryCountReset;
+        snapshot.totalDrawsDelta = totalDrawsDelta;
+        lotteryCountDelta = 0;
+        lotteryCountReset = false;
+        totalDrawsDelta = 0;
+        dirty = false;
+        return snapshot;
+    }
+
+    // 写回失败时把快照中的修改合并回来，等待下次写回
+    public synchronized void restore(PlayerLotteryData snapshot) {
+        if (!lotteryCountReset) {
+            // 快照之后没有再次重置，把快照中的增量或重置合并回来
+            lotteryCountDelta += snapshot.lotteryCountDelta;
+            lotteryCountReset = snapshot.lotteryCountReset;
+        }
+        totalDrawsDelta += snapshot.totalDrawsDelta;
+        dirty = true;
+    }
+}
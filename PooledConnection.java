@@ -0,0 +1,113 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// 连接池中的连接，缓存本连接上预编译过的语句，close 时归还连接池
+public class PooledConnection implements AutoCloseable {
+
+    // 所属连接池
+    private final ConnectionPool pool;
+    // 物理连接
+    private final Connection connection;
+    // 日志对象
+    private final Logger logger;
+    // 预编译语句缓存，按最近使用顺序淘汰
+    private final Map<String, PreparedStatement> statements;
+    // 连接创建时间
+    private final long createdAt;
+    // 上次归还时间
+    private long lastUsed;
+    // 连接是否已损坏
+    private boolean broken;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize, Logger logger) {
+        this.pool = pool;
+        this.connection = connection;
+        this.logger = logger;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsed = createdAt;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    // 获取缓存的预编译语句，调用方不能关闭返回的语句
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    // 发生连接级错误（SQLState 08 开头）时标记为损坏，归还时关闭并在下次借出时重连
+    public void markBrokenIfFatal(SQLException e) {
+        String sqlState = e.getSQLState();
+        if (sqlState != null && sqlState.startsWith("08")) {
+            broken = true;
+        }
+    }
+
+    boolean isBroken() {
+        try {
+            return broken || connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    void closePhysically() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warning("无法关闭数据库连接: " + e.getMessage());
+        }
+    }
+
+    private void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // 语句关闭失败不影响连接继续使用
+        }
+    }
+}
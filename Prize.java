@@ -0,0 +1,51 @@
+import java.util.List;
+
+// 奖品定义，从配置文件编译而来，创建后不可修改
+public class Prize {
+
+    // 奖品在配置列表中的序号，写入抽奖日志
+    private final int id;
+    // 中奖概率（百分比）
+    private final double probability;
+    // 中奖后执行的命令
+    private final List<String> commands;
+    // 预编译的中奖命令
+    private final List<CommandTemplate> commandTemplates;
+    // 奖品库存，不限量时为 null
+    private final PrizeStock stock;
+    // 是否为大奖，计入大奖排行榜
+    private final boolean jackpot;
+
+    public Prize(int id, double probability, List<String> commands, PrizeStock stock, boolean jackpot) {
+        this.id = id;
+        this.stock = stock;
+        this.jackpot = jackpot;
+        this.probability = probability;
+        this.commands = commands;
+        this.commandTemplates = CommandTemplate.compileAll(commands);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public List<String> getCommands() {
+        return commands;
+    }
+
+    public List<CommandTemplate> getCommandTemplates() {
+        return commandTemplates;
+    }
+
+    public PrizeStock getStock() {
+        return stock;
+    }
+
+    public boolean isJackpot() {
+        return jackpot;
+    }
+}
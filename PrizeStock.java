@@ -0,0 +1,163 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// 奖品库存，抽中时在内存中无锁扣减，由存储线程分批写入数据库
+// 未写入数据库的发放数量达到上限时暂停发放，崩溃时最多超发该数量
+// 暂停期间抽中该奖品会改抽其他奖品，其他奖品的实际概率偏高，每次暂停都会通知 throttleListener 计入统计
+public class PrizeStock {
+
+    // 库存标识，权限组和奖品序号
+    private final String key;
+    // 崩溃时允许超发的最大数量
+    private final int oversellMargin;
+    // 达到上限一半时请求尽快写入
+    private final Runnable flushRequester;
+    // 因等待写入而拒绝发放时调用
+    private final Runnable throttleListener;
+    // 每周期库存
+    private volatile int limit = Integer.MAX_VALUE;
+    // 库存重置周期
+    private volatile ResetPeriod period = ResetPeriod.NEVER;
+    // 高 32 位为周期编号，低 32 位为本周期已发放数量
+    private final AtomicLong state = new AtomicLong();
+    // 已写入数据库的周期编号和发放数量，格式同上
+    private volatile long persisted;
+
+    public PrizeStock(String key, int oversellMargin, Runnable flushRequester, Runnable throttleListener) {
+        this.key = key;
+        this.oversellMargin = Math.max(1, oversellMargin);
+        this.flushRequester = flushRequester;
+        this.throttleListener = throttleListener;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public ResetPeriod getPeriod() {
+        return period;
+    }
+
+    // 加载或重载配置时更新库存和周期
+    public void configure(int limit, ResetPeriod period) {
+        this.limit = limit;
+        this.period = period;
+    }
+
+    // 发放一个，本周期库存已用完或未写入数据库的数量已达上限时返回 null
+    public Claim tryClaim() {
+        long epoch = period.currentEpoch();
+        while (true) {
+            long current = state.get();
+            // 进入新周期时从 0 开始计数
+            int claimed = epochOf(current) == epoch ? claimedOf(current) : 0;
+            if (claimed >= limit) {
+                return null;
+            }
+            int unpersisted = unpersisted(epoch, claimed);
+            if (unpersisted >= oversellMargin) {
+                // 等待写入后再发放
+                flushRequester.run();
+                throttleListener.run();
+                return null;
+            }
+            if (state.compareAndSet(current, pack(epoch, claimed + 1))) {
+                if ((unpersisted + 1) * 2 >= oversellMargin) {
+                    flushRequester.run();
+                }
+                return new Claim(this, epoch);
+            }
+        }
+    }
+
+    // 归还一次发放，发放后已进入新周期时不归还，新周期的计数不包含这次发放
+    private void release(long epoch) {
+        while (true) {
+            long current = state.get();
+            int claimed = claimedOf(current);
+            if (epochOf(current) != epoch || claimed <= 0 || state.compareAndSet(current, pack(epoch, claimed - 1))) {
+                return;
+            }
+        }
+    }
+
+    // 周期编号和发放数量，用 epochOf 和 claimedOf 拆分
+    public long getState() {
+        return state.get();
+    }
+
+    public long getPersisted() {
+        return persisted;
+    }
+
+    // 快照 snapshot 已写入数据库，其他服务器在同一周期额外发放了 extra 个
+    public void markPersisted(long snapshot, int extra) {
+        long epoch = epochOf(snapshot);
+        if (extra != 0) {
+            while (true) {
+                long current = state.get();
+                if (epochOf(current) != epoch || state.compareAndSet(current, pack(epoch, claimedOf(current) + extra))) {
+                    break;
+                }
+            }
+        }
+        persisted = pack(epoch, claimedOf(snapshot) + extra);
+    }
+
+    // 启动时用数据库中的数量初始化
+    public void reconcile(long epoch, int claimed) {
+        long value = pack(epoch, claimed);
+        state.set(value);
+        persisted = value;
+    }
+
+    // 快照中相对数据库尚未写入的发放数量
+    public int getUnpersisted(long snapshot) {
+        return unpersisted(epochOf(snapshot), claimedOf(snapshot));
+    }
+
+    private int unpersisted(long epoch, int claimed) {
+        long written = persisted;
+        return epochOf(written) == epoch ? claimed - claimedOf(written) : claimed;
+    }
+
+    public static long epochOf(long value) {
+        return value >>> 32;
+    }
+
+    public static int claimedOf(long value) {
+        return (int) value;
+    }
+
+    private static long pack(long epoch, int claimed) {
+        return (epoch << 32) | (claimed & 0xFFFFFFFFL);
+    }
+
+    // 一次成功的发放，记录发放时的周期编号
+    public static final class Claim {
+
+        private final PrizeStock stock;
+        private final long epoch;
+
+        private Claim(PrizeStock stock, long epoch) {
+            this.stock = stock;
+            this.epoch = epoch;
+        }
+
+        public PrizeStock getStock() {
+            return stock;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        // 归还这次发放，用于抽奖未能完成时
+        public void release() {
+            stock.release(epoch);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// 所有限量奖品的库存，重载配置后仍沿用同一个库存对象
+public class PrizeStockRegistry {
+
+    // 崩溃时每个奖品允许超发的最大数量
+    private final int oversellMargin;
+    // 按库存标识索引
+    private final Map<String, PrizeStock> stocks = new ConcurrentHashMap<>();
+    // 请求存储线程尽快写入库存
+    private volatile Runnable flushRequester = () -> { };
+    // 限量奖品因等待写入暂停发放时调用，参数为库存标识
+    private volatile Consumer<String> throttleListener = key -> { };
+
+    public PrizeStockRegistry(int oversellMargin) {
+        this.oversellMargin = oversellMargin;
+    }
+
+    public PrizeStock get(String key) {
+        return stocks.computeIfAbsent(key, k -> new PrizeStock(k, oversellMargin, () -> flushRequester.run(), () -> throttleListener.accept(k)));
+    }
+
+    // 查找已在配置中声明的库存，不存在时返回 null
+    public PrizeStock find(String key) {
+        return stocks.get(key);
+    }
+
+    public Collection<PrizeStock> getStocks() {
+        return stocks.values();
+    }
+
+    public void setFlushRequester(Runnable flushRequester) {
+        this.flushRequester = flushRequester;
+    }
+
+    public void setThrottleListener(Consumer<String> throttleListener) {
+        this.throttleListener = throttleListener;
+    }
+
+    // 权限组内某个奖品的库存标识，prizeKey 为配置中的 id 或奖品序号
+    public static String keyOf(LotteryTier tier, String prizeKey) {
+        return tier.name().toLowerCase(Locale.ROOT) + ":" + prizeKey;
+    }
+}
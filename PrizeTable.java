@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.logging.Logger;
+
+// 预编译的奖品表，使用 Vose 别名法在常数时间内完成抽样
+// 每次抽奖由一个种子决定，限量奖品售罄或暂停发放时按同一随机数流重新抽取，记录种子即可重现抽奖过程
+public class PrizeTable {
+
+    // 单次抽奖最多抽取的次数，都抽中不可发放的限量奖品时视为未中奖
+    private static final int MAX_ATTEMPTS = 64;
+
+    // 奖品列表，最后一个槽位代表未中奖
+    private final Prize[] prizes;
+    // 配置中的权重
+    private final double[] weights;
+    // 按配置权重构建的别名表
+    private final Sampler sampler;
+
+    private PrizeTable(Prize[] prizes, double[] weights) {
+        this.prizes = prizes;
+        this.weights = weights;
+        this.sampler = new Sampler(weights);
+    }
+
+    // 按种子抽取一个奖品，未中奖时返回 null；限量奖品在返回前已扣减库存，发放记录加入 claims，抽奖未能完成时用于归还
+    // 跳过不可发放的限量奖品等价于按其余奖品的权重重新抽取，分布与移除该奖品后相同
+    public Prize sample(long seed, List<PrizeStock.Claim> claims) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Prize prize = prizes[sampler.sample(random)];
+            if (prize == null || prize.getStock() == null) {
+                return prize;
+            }
+            PrizeStock.Claim claim = prize.getStock().tryClaim();
+            if (claim != null) {
+                claims.add(claim);
+                return prize;
+            }
+            // 售罄或暂停发放时继续抽取
+        }
+        return null;
+    }
+
+    // 按种子重现抽奖依次抽中的奖品序号，未中奖记为 LotteryLogRecord.PRIZE_NONE
+    // 限量奖品当时可能因售罄或暂停发放被跳过，因此继续列出之后的结果，直到抽中不限量的奖品或未中奖
+    // 实际抽奖结果必然是序列中的某一项
+    public List<Integer> replay(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Integer> picks = new ArrayList<>();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Prize prize = prizes[sampler.sample(random)];
+            if (prize == null) {
+                picks.add(LotteryLogRecord.PRIZE_NONE);
+                return picks;
+            }
+            picks.add(prize.getId());
+            if (prize.getStock() == null) {
+                return picks;
+            }
+        }
+        picks.add(LotteryLogRecord.PRIZE_NONE);
+        return picks;
+    }
+
+    // 按配置权重抽取一个槽位，不检查也不扣减库存，用于模拟抽奖；返回 size() 表示未中奖
+    public int sampleSlot(SplittableRandom random) {
+        return sampler.sample(random);
+    }
+
+    // 按配置中的序号查找奖品，不存在时返回 null
+    public Prize getPrize(int id) {
+        for (int i = 0; i < prizes.length - 1; i++) {
+            if (prizes[i].getId() == id) {
+                return prizes[i];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return prizes.length - 1;
+    }
+
+    // 槽位对应的奖品，slot 等于 size() 时为未中奖，返回 null
+    public Prize getSlot(int slot) {
+        return prizes[slot];
+    }
+
+    // 槽位的实际中奖概率（百分比），概率之和超出 100 的部分已被截去
+    public double getWeight(int slot) {
+        return weights[slot];
+    }
+
+    // 从配置中的奖品列表编译奖品表，stock 和 stock-period 声明限量奖品，jackpot 标记大奖
+    // 限量奖品的库存按 id 记录，未指定 id 时按奖品在列表中的序号记录
+    @SuppressWarnings("unchecked")
+    public static PrizeTable compile(List<Map<?, ?>> prizeList, LotteryTier tier, PrizeStockRegistry stocks, Logger logger) {
+        List<Prize> prizes = new ArrayList<>();
+        Set<String> stockKeys = new HashSet<>();
+        for (int id = 0; id < prizeList.size(); id++) {
+            Map<?, ?> prize = prizeList.get(id);
+            Object probability = prize.get("probability");
+            Object commands = prize.get("commands");
+            try {
+                PrizeStock stock = null;
+                if (prize.get("stock") != null) {
+                    String stockKey = PrizeStockRegistry.keyOf(tier, prize.get("id") != null ? String.valueOf(prize.get("id")) : String.valueOf(id));
+                    if (!stockKeys.add(stockKey)) {
+                        logger.warning("重复的奖品库存标识，这些奖品将共用库存: " + stockKey);
+                    }
+                    stock = stocks.get(stockKey);
+                    stock.configure(Math.max(0, Integer.parseInt(String.valueOf(prize.get("stock")))),
+                            ResetPeriod.parse(prize.get("stock-period"), logger));
+                }
+                prizes.add(new Prize(id, Double.parseDouble(String.valueOf(probability)),
+                        commands instanceof List ? Collections.unmodifiableList(new ArrayList<>((List<String>) commands)) : Collections.emptyList(),
+                        stock, Boolean.parseBoolean(String.valueOf(prize.get("jackpot")))));
+            } catch (NumberFormatException e) {
+                logger.warning("无效的奖品概率或库存: " + probability);
+            }
+        }
+        // 概率按 0 到 100 累加，超出 100 的部分永远不会被抽中，剩余部分为未中奖
+        int n = prizes.size();
+        Prize[] slots = prizes.toArray(new Prize[n + 1]);
+        double[] weights = new double[n + 1];
+        double cumulative = 0;
+        for (int i = 0; i < n; i++) {
+            double next = Math.min(100, cumulative + Math.max(0, slots[i].getProbability()));
+            weights[i] = next - cumulative;
+            cumulative = next;
+        }
+        weights[n] = 100 - cumulative;
+        return new PrizeTable(slots, weights);
+    }
+
+    // 别名表，创建后不可修改
+    private static final class Sampler {
+
+        // 每个槽位保留自身的概率
+        private final double[] probabilities;
+        // 每个槽位的别名
+        private final int[] aliases;
+
+        private Sampler(double[] weights) {
+            int n = weights.length;
+            this.probabilities = new double[n];
+            this.aliases = new int[n];
+            double total = 0;
+            int heaviest = 0;
+            for (int i = 0; i < n; i++) {
+                total += weights[i];
+                if (weights[i] > weights[heaviest]) {
+                    heaviest = i;
+                }
+            }
+            if (total <= 0) {
+                // 没有任何权重，只能未中奖
+                Arrays.fill(aliases, n - 1);
+                return;
+            }
+            // 按平均权重缩放，划分为不足和溢出两组
+            double[] scaled = new double[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                if (scaled[i] < 1.0) {
+                    small.push(i);
+                } else {
+                    large.push(i);
+                }
+            }
+            // 用溢出槽位补齐不足槽位
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                probabilities[less] = scaled[less];
+                aliases[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1.0;
+                if (scaled[more] < 1.0) {
+                    small.push(more);
+                } else {
+                    large.push(more);
+                }
+            }
+            // 剩余槽位由于浮点误差可能略偏离 1，直接视为满槽
+            while (!large.isEmpty()) {
+                probabilities[large.pop()] = 1.0;
+            }
+            while (!small.isEmpty()) {
+                int slot = small.pop();
+                if (weights[slot] > 0) {
+                    probabilities[slot] = 1.0;
+                } else {
+                    // 权重为 0 的槽位不能保留自身
+                    aliases[slot] = heaviest;
+                }
+            }
+        }
+
+        // 返回抽中的槽位
+        private int sample(SplittableRandom random) {
+            int slot = random.nextInt(probabilities.length);
+            if (random.nextDouble() >= probabilities[slot]) {
+                slot = aliases[slot];
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+// 计数的重置周期，周期按服务器时区划分，每周从星期一开始
+public enum ResetPeriod {
+    // 从不重置
+    NEVER,
+    // 每天重置
+    DAILY,
+    // 每周重置
+    WEEKLY;
+
+    // 指定时间所在的周期编号
+    public long epochOf(long millis) {
+        if (this == NEVER) {
+            return 0;
+        }
+        long day = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        // 1970-01-01 是星期四，偏移 3 天使每周从星期一开始
+        return this == DAILY ? day : Math.floorDiv(day + 3, 7);
+    }
+
+    public long currentEpoch() {
+        return epochOf(System.currentTimeMillis());
+    }
+
+    // 周期的开始时间（毫秒时间戳），NEVER 没有下一个周期
+    public long startOf(long epoch) {
+        if (this == NEVER) {
+            return epoch <= 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        long day = this == DAILY ? epoch : epoch * 7 - 3;
+        return LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // 解析配置中的周期名称，为空时不重置
+    public static ResetPeriod parse(Object name, Logger logger) {
+        if (name == null) {
+            return NEVER;
+        }
+        try {
+            return valueOf(String.valueOf(name).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("无效的重置周期: " + name);
+            return NEVER;
+        }
+    }
+}
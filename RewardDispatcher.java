@@ -0,0 +1,96 @@
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+// 奖励命令队列，每 tick 最多执行固定数量的命令，避免大量玩家同时中奖时单个 tick 卡顿
+public class RewardDispatcher {
+
+    // 插件对象
+    private final JavaPlugin plugin;
+    // 是否安装了 PlaceholderAPI
+    private final boolean placeholderApiEnabled;
+    // 每 tick 最多执行的命令数量
+    private final int commandsPerTick;
+    // 待执行的命令，仅在主线程访问
+    private final Deque<PendingCommand> queue = new ArrayDeque<>();
+    // 队列长度，供其他线程读取
+    private volatile int queueSize;
+    // 耗时统计
+    private final LotteryMetrics metrics;
+
+    public RewardDispatcher(JavaPlugin plugin, boolean placeholderApiEnabled, int commandsPerTick, LotteryMetrics metrics) {
+        this.plugin = plugin;
+        this.placeholderApiEnabled = placeholderApiEnabled;
+        this.commandsPerTick = Math.max(1, commandsPerTick);
+        this.metrics = metrics;
+    }
+
+    public void start() {
+        Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+    }
+
+    // 为玩家填充命令中的占位符并按执行次数加入队列，连抽时相同的 give 命令合并为一条
+    public void dispatch(Player player, Map<CommandTemplate, Integer> commands) {
+        for (Map.Entry<CommandTemplate, Integer> entry : commands.entrySet()) {
+            CommandTemplate command = entry.getKey();
+            int times = entry.getValue();
+            if (times > 1 && command.isMergeable()) {
+                queue.add(new PendingCommand(player.getName(), command.renderMerged(player, placeholderApiEnabled, times)));
+                continue;
+            }
+            String rendered = command.render(player, placeholderApiEnabled);
+            for (int i = 0; i < times; i++) {
+                queue.add(new PendingCommand(player.getName(), rendered));
+            }
+        }
+        queueSize = queue.size();
+    }
+
+    // 可在任意线程调用
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    private void tick() {
+        for (int i = 0; i < commandsPerTick && !queue.isEmpty(); i++) {
+            execute(queue.poll());
+        }
+        queueSize = queue.size();
+    }
+
+    // 插件关闭时执行所有剩余命令，避免奖励丢失
+    public void drain() {
+        while (!queue.isEmpty()) {
+            execute(queue.poll());
+        }
+        queueSize = 0;
+    }
+
+    private void execute(PendingCommand pending) {
+        long start = System.nanoTime();
+        try {
+            if (!Bukkit.dispatchCommand(Bukkit.getConsoleSender(), pending.command)) {
+                plugin.getLogger().warning("奖励命令不存在 (玩家 " + pending.playerName + "): " + pending.command);
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("奖励命令执行失败 (玩家 " + pending.playerName + "): " + pending.command + " - " + e.getMessage());
+        }
+        metrics.record(LotteryMetrics.Stage.COMMAND_EXECUTION, start);
+    }
+
+    // 一条待执行的命令
+    private static final class PendingCommand {
+
+        private final String playerName;
+        private final String command;
+
+        private PendingCommand(String playerName, String command) {
+            this.playerName = playerName;
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+// 在两个数据库之间复制抽奖数据，按主键分批读取，每批在目标库中用一个事务批量写入并记录进度
+// 中断后再次执行会从上次提交的位置继续，REPLACE 写入使重复复制同一批数据不会产生重复行
+// 源库在第一轮复制期间仍在写入，全部复制一遍后再补一轮：只追加的表从进度处继续，会被修改的表从头重新复制
+// 最后逐行比较两端的内容，而不只是行数；补复制和核对期间调用方需要暂停对源库的写入
+// 只追加的表只核对编号不超过复制进度的行，其他服务器在此之后追加的行不影响核对结果
+public class StorageMigrator {
+
+    // 需要复制的表，配置快照在日志之前复制，日志中的快照编号保持有效
+    private static final Table[] TABLES = {
+            new Table("lottery_config_snapshots", "id", true, false, "id", "hash", "created_time", "content"),
+            new Table("player_lottery_data", "player_uuid", false, true,
+                    "player_uuid", "lottery_count", "last_lottery_time", "is_guarantee", "version", "window_count", "window_epoch", "total_draws"),
+            new Table("prize_stock", "prize_key", false, true, "prize_key", "period", "claimed"),
+            new Table("lottery_logs", "id", true, false, "id", "player_uuid", "draw_time", "tier", "prize_id", "seed", "config_id")
+    };
+
+    // 源数据库
+    private final ConnectionPool source;
+    // 目标数据库
+    private final ConnectionPool target;
+    // 源数据库的存储方式，用于区分不同来源的进度
+    private final String sourceType;
+    // 每批复制的行数
+    private final int chunkSize;
+
+    public StorageMigrator(ConnectionPool source, ConnectionPool target, String sourceType, int chunkSize) {
+        this.source = source;
+        this.target = target;
+        this.sourceType = sourceType;
+        this.chunkSize = chunkSize;
+    }
+
+    // 第一轮：从上次的进度依次复制所有表，每提交一批调用一次 progress，源库可以同时写入
+    public void copyAll(ObjLongConsumer<String> progress) throws SQLException {
+        try (PooledConnection connection = target.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS lottery_migration_checkpoint (" +
+                    "table_name VARCHAR(64) PRIMARY KEY, " +
+                    "last_key VARCHAR(64) NOT NULL, " +
+                    "copied BIGINT NOT NULL" +
+                    ")");
+        }
+        for (Table table : TABLES) {
+            copy(table, false, progress);
+        }
+    }
+
+    // 第二轮：补上第一轮期间源库的写入并核对内容，全部一致时清除进度记录
+    // 调用期间源库不能有写入，否则会被修改的表可能不一致
+    public List<TableResult> finish(ObjLongConsumer<String> progress) throws SQLException {
+        List<TableResult> results = new ArrayList<>();
+        boolean verified = true;
+        for (Table table : TABLES) {
+            Checkpoint checkpoint = copy(table, table.mutable, progress);
+            TableResult result;
+            if (table.mutable) {
+                result = new TableResult(table.name, checkpoint.copied, summarize(source, table, null), summarize(target, table, null));
+            } else if (checkpoint.lastKey != null) {
+                result = new TableResult(table.name, checkpoint.copied,
+                        summarize(source, table, checkpoint.lastKey), summarize(target, table, checkpoint.lastKey));
+            } else {
+                // 只追加的表复制时为空，没有需要核对的行
+                TableSummary empty = new TableSummary(0, Long.MIN_VALUE, 0);
+                result = new TableResult(table.name, 0, empty, empty);
+            }
+            verified &= result.isVerified();
+            results.add(result);
+        }
+        if (verified) {
+            try (PooledConnection connection = target.borrow()) {
+                PreparedStatement delete = connection.prepareStatement("DELETE FROM lottery_migration_checkpoint WHERE table_name LIKE ?");
+                delete.setString(1, sourceType + ":%");
+                delete.executeUpdate();
+            }
+        }
+        return results;
+    }
+
+    // 从上次的进度或从头复制一张表，返回复制后的进度
+    private Checkpoint copy(Table table, boolean fromStart, ObjLongConsumer<String> progress) throws SQLException {
+        String checkpointName = sourceType + ":" + table.name;
+        String lastKey = null;
+        long copied = 0;
+        if (!fromStart) {
+            try (PooledConnection connection = target.borrow()) {
+                PreparedStatement select = connection.prepareStatement("SELECT last_key, copied FROM lottery_migration_checkpoint WHERE table_name = ?");
+                select.setString(1, checkpointName);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    if (resultSet.next()) {
+                        lastKey = resultSet.getString("last_key");
+                        copied = resultSet.getLong("copied");
+                    }
+                }
+            }
+        }
+        String columns = String.join(", ", table.columns);
+        String placeholders = String.join(",", Collections.nCopies(table.columns.length, "?"));
+        String write = "REPLACE INTO " + table.name + " (" + columns + ") VALUES (" + placeholders + ")";
+        while (true) {
+            List<Object[]> rows = readChunk(source, table, lastKey, null);
+            if (rows.isEmpty()) {
+                return new Checkpoint(lastKey, copied);
+            }
+            String chunkLastKey = table.keyOf(rows.get(rows.size() - 1));
+            long chunkCopied = copied + rows.size();
+            writeChunk(write, rows, checkpointName, chunkLastKey, chunkCopied);
+            lastKey = chunkLastKey;
+            copied = chunkCopied;
+            progress.accept(table.name, copied);
+            if (rows.size() < chunkSize) {
+                return new Checkpoint(lastKey, copied);
+            }
+        }
+    }
+
+    // 按主键分批读取整张表或主键不超过 upTo 的行，统计行数、最大编号和与行顺序无关的校验和
+    // 两端的字符串排序规则可能不同，校验和按行累加，不依赖读取顺序
+    private TableSummary summarize(ConnectionPool pool, Table table, String upTo) throws SQLException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        long rows = 0;
+        long maxId = Long.MIN_VALUE;
+        long checksum = 0;
+        String lastKey = null;
+        while (true) {
+            List<Object[]> chunk = readChunk(pool, table, lastKey, upTo);
+            for (Object[] row : chunk) {
+                checksum += hashRow(digest, row);
+                if (table.numericKey) {
+                    maxId = Math.max(maxId, ((Number) row[table.keyIndex()]).longValue());
+                }
+            }
+            rows += chunk.size();
+            if (chunk.size() < chunkSize) {
+                return new TableSummary(rows, maxId, checksum);
+            }
+            lastKey = table.keyOf(chunk.get(chunk.size() - 1));
+        }
+    }
+
+    // 一行的 64 位摘要，同一内容在 SQLite 和 MySQL 中读出的类型不同，先统一为整数、字节或文本
+    private static long hashRow(MessageDigest digest, Object[] row) {
+        for (Object value : row) {
+            if (value == null) {
+                digest.update((byte) 0);
+            } else if (value instanceof Boolean || value instanceof Number) {
+                long number = value instanceof Boolean ? ((Boolean) value ? 1 : 0) : ((Number) value).longValue();
+                digest.update((byte) 1);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    digest.update((byte) (number >>> shift));
+                }
+            } else if (value instanceof byte[]) {
+                digest.update((byte) 2);
+                digest.update((byte[]) value);
+            } else {
+                digest.update((byte) 3);
+                digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0xFF);
+        }
+        byte[] hash = digest.digest();
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (hash[i] & 0xFF);
+        }
+        return result;
+    }
+
+    // 读取主键大于 lastKey、不超过 upTo 的一批行，lastKey 为 null 时从头读取，upTo 为 null 时读到表尾
+    private List<Object[]> readChunk(ConnectionPool pool, Table table, String lastKey, String upTo) throws SQLException {
+        List<String> conditions = new ArrayList<>(2);
+        if (lastKey != null) {
+            conditions.add(table.key + " > ?");
+        }
+        if (upTo != null) {
+            conditions.add(table.key + " <= ?");
+        }
+        String sql = "SELECT " + String.join(", ", table.columns) + " FROM " + table.name
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + table.key + " LIMIT ?";
+        List<Object[]> rows = new ArrayList<>(chunkSize);
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                int index = 1;
+                if (lastKey != null) {
+                    table.setKey(statement, index++, lastKey);
+                }
+                if (upTo != null) {
+                    table.setKey(statement, index++, upTo);
+                }
+                statement.setInt(index, chunkSize);
+                statement.setFetchSize(chunkSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Object[] row = new Object[table.columns.length];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = resultSet.getObject(i + 1);
+                        }
+                        rows.add(row);
+                    }
+                }
+            } catch (SQLException e) {
+                connection.markBrokenIfFatal(e);
+                throw e;
+            }
+        }
+        return rows;
+    }
+
+    // 写入一批数据并更新进度，两者在同一个事务中提交
+    private void writeChunk(String sql, List<Object[]> rows, String checkpointName, String lastKey, long copied) throws SQLException {
+        try (PooledConnection pooled = target.borrow()) {
+            Connection connection = pooled.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                PreparedStatement statement = pooled.prepareStatement(sql);
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        statement.setObject(i + 1, row[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                PreparedStatement checkpoint = pooled.prepareStatement("REPLACE INTO lottery_migration_checkpoint (table_name, last_key, copied) VALUES (?,?,?)");
+                checkpoint.setString(1, checkpointName);
+                checkpoint.setString(2, lastKey);
+                checkpoint.setLong(3, copied);
+                checkpoint.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                pooled.markBrokenIfFatal(e);
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    pooled.markBrokenIfFatal(e);
+                }
+            }
+        }
+    }
+
+    // 一张需要复制的表
+    private static final class Table {
+
+        private final String name;
+        // 主键列，按该列分批读取
+        private final String key;
+        // 主键是否为数字
+        private final boolean numericKey;
+        // 已有的行是否会被修改，只追加的表补复制时从进度处继续
+        private final boolean mutable;
+        // 复制的列，主键列必须包含在内
+        private final String[] columns;
+
+        private Table(String name, String key, boolean numericKey, boolean mutable, String... columns) {
+            this.name = name;
+            this.key = key;
+            this.numericKey = numericKey;
+            this.mutable = mutable;
+            this.columns = columns;
+        }
+
+        private void setKey(PreparedStatement statement, int index, String key) throws SQLException {
+            if (numericKey) {
+                statement.setLong(index, Long.parseLong(key));
+            } else {
+                statement.setString(index, key);
+            }
+        }
+
+        private String keyOf(Object[] row) {
+            return String.valueOf(row[keyIndex()]);
+        }
+
+        private int keyIndex() {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(key)) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException(key);
+        }
+    }
+
+    // 一张表的复制进度
+    private static final class Checkpoint {
+
+        // 已复制的最后一行的主键，尚未复制任何行时为 null
+        private final String lastKey;
+        // 累计复制的行数
+        private final long copied;
+
+        private Checkpoint(String lastKey, long copied) {
+            this.lastKey = lastKey;
+            this.copied = copied;
+        }
+    }
+
+    // 一端数据库中一张表的内容摘要
+    private static final class TableSummary {
+
+        private final long rows;
+        // 数字主键的最大值，主键不是数字或表为空时为 Long.MIN_VALUE
+        private final long maxId;
+        // 所有行摘要之和
+        private final long checksum;
+
+        private TableSummary(long rows, long maxId, long checksum) {
+            this.rows = rows;
+            this.maxId = maxId;
+            this.checksum = checksum;
+        }
+
+        private boolean matches(TableSummary other) {
+            return rows == other.rows && maxId == other.maxId && checksum == other.checksum;
+        }
+    }
+
+    // 一张表的复制结果
+    public static final class TableResult {
+
+        // 表名
+        private final String table;
+        // 本次及之前中断的执行中累计复制的行数，会被修改的表为最后一轮重新复制的行数
+        private final long copied;
+        // 复制完成后源表的内容，只追加的表为不超过复制进度的行
+        private final TableSummary source;
+        // 复制完成后目标表的内容，只追加的表为不超过复制进度的行
+        private final TableSummary target;
+
+        private TableResult(String table, long copied, TableSummary source, TableSummary target) {
+            this.table = table;
+            this.copied = copied;
+            this.source = source;
+            this.target = target;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public long getCopied() {
+            return copied;
+        }
+
+        public long getSourceRows() {
+            return source.rows;
+        }
+
+        public long getTargetRows() {
+            return target.rows;
+        }
+
+        public String getSourceChecksum() {
+            return String.format("%016x", source.checksum);
+        }
+
+        public String getTargetChecksum() {
+            return String.format("%016x", target.checksum);
+        }
+
+        // 行数、最大编号和内容校验和都一致
+        public boolean isVerified() {
+            return source.matches(target);
+        }
+    }
+}
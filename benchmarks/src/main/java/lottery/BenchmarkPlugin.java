@@ -0,0 +1,43 @@
+package lottery;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// 基准测试中代替 LotteryPlugin 提供日志和数据目录，数据目录为临时目录，结束时删除
+final class BenchmarkPlugin extends JavaPlugin {
+
+    BenchmarkPlugin() throws IOException {
+        super(Files.createTempDirectory("salxlottery-bench").toFile());
+    }
+
+    // 插件自带的默认配置
+    static YamlConfiguration loadDefaultConfig() throws IOException, InvalidConfigurationException {
+        try (InputStream input = BenchmarkPlugin.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (input == null) {
+                throw new FileNotFoundException("config.yml");
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) != -1; ) {
+                content.write(buffer, 0, read);
+            }
+            YamlConfiguration config = new YamlConfiguration();
+            config.loadFromString(new String(content.toByteArray(), StandardCharsets.UTF_8));
+            return config;
+        }
+    }
+
+    void deleteDataFolder() throws IOException {
+        try (Stream<Path> paths = Files.walk(getDataFolder().toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
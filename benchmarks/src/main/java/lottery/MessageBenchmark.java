@@ -0,0 +1,58 @@
+package lottery;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 抽奖结果消息的渲染：sendMessage 使用的模板渲染、奖品预览和 showWinningDetails 的完整消息
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    // 与语言文件中 lottery-winning-details 相同形式的消息
+    private static final String WINNING_DETAILS = "&6中奖概率: &e{0}% &6时间: &e{1} &6奖品: &e{2}";
+
+    private MessageTemplate template;
+    private List<String> commands;
+
+    @Setup
+    public void setup() {
+        template = MessageTemplate.compile(WINNING_DETAILS);
+        commands = Arrays.asList(
+                "give %player_name% diamond 1",
+                "give %player_name% gold_ingot 3",
+                "give %player_name% diamond 2",
+                "tellraw %player_name% [{\"text\":\"你获得了钻石！\",\"color\":\"green\"}]");
+    }
+
+    @Benchmark
+    public MessageTemplate compile() {
+        return MessageTemplate.compile(WINNING_DETAILS);
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render("20.0", "2024-01-01 12:00:00", "diamond x 3, gold_ingot x 3");
+    }
+
+    @Benchmark
+    public String formatPrizePreview() {
+        return LotteryPlugin.formatPrizePreview(commands);
+    }
+
+    // 与 LotteryPlugin.showWinningDetails 的步骤相同，不含发送
+    @Benchmark
+    public String winningDetails() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String timestamp = dateFormat.format(new Date());
+        return template.render("20.0", timestamp, LotteryPlugin.formatPrizePreview(commands));
+    }
+}
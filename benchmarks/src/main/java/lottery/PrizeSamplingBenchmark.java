@@ -0,0 +1,44 @@
+package lottery;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// 按默认配置的奖品表抽奖，sample 与实际抽奖相同（含限量奖品检查），sampleSlot 为模拟抽奖使用的纯抽样
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrizeSamplingBenchmark {
+
+    @Param({"DEFAULT", "MEMBER", "OP"})
+    private LotteryTier tier;
+
+    private PrizeTable prizes;
+    private SplittableRandom random;
+    private final List<PrizeStock.Claim> claims = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        LotterySettings settings = LotterySettings.load(BenchmarkPlugin.loadDefaultConfig(), new PrizeStockRegistry(0), Logger.getLogger("benchmark"));
+        prizes = settings.getPrizes(tier);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Prize sample() {
+        claims.clear();
+        return prizes.sample(random.nextLong(), claims);
+    }
+
+    @Benchmark
+    public int sampleSlot() {
+        return prizes.sampleSlot(random);
+    }
+}
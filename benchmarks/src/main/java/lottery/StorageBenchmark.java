@@ -0,0 +1,112 @@
+package lottery;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 存储层操作，分别在临时文件和内存中的 SQLite 数据库上执行
+// 预先写入 PLAYERS 名玩家和每人 LOGS_PER_PLAYER 条日志，查询在有数据的表上进行
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+
+    private static final int PLAYERS = 1000;
+    private static final int LOGS_PER_PLAYER = 20;
+
+    // file 为数据目录中的 lottery.db，memory 为 SQLite 内存数据库
+    @Param({"file", "memory"})
+    private String database;
+
+    private BenchmarkPlugin plugin;
+    private LotteryStorage storage;
+    private PlayerLotteryData[] players;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        plugin = new BenchmarkPlugin();
+        YamlConfiguration config = BenchmarkPlugin.loadDefaultConfig();
+        if (database.equals("memory")) {
+            storage = new LotteryStorage(plugin, config, new LotteryMetrics()) {
+                @Override
+                String getSqliteUrl() {
+                    return "jdbc:sqlite::memory:";
+                }
+            };
+        } else {
+            storage = new LotteryStorage(plugin, config, new LotteryMetrics());
+        }
+        if (!storage.initDatabase() || !storage.createTables()) {
+            throw new IllegalStateException("无法初始化数据库: " + database);
+        }
+        players = new PlayerLotteryData[PLAYERS];
+        List<LotteryDraw> draws = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new PlayerLotteryData(UUID.randomUUID(), 0, 0, false);
+            players[i].incrementLotteryCount(LOGS_PER_PLAYER);
+            List<LotteryLogRecord> logs = new ArrayList<>();
+            for (int j = 0; j < LOGS_PER_PLAYER; j++) {
+                logs.add(new LotteryLogRecord(players[i].getPlayerUUID(), LotteryTier.DEFAULT, j % 3, now - j * 60_000L, j, 0));
+            }
+            draws.add(new LotteryDraw(players[i], logs));
+        }
+        if (!storage.writeDraws(draws)) {
+            throw new IllegalStateException("无法写入初始数据: " + database);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        storage.close();
+        plugin.deleteDataFolder();
+    }
+
+    private PlayerLotteryData randomPlayer() {
+        return players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+    }
+
+    private static LotteryLogRecord log(PlayerLotteryData player) {
+        return new LotteryLogRecord(player.getPlayerUUID(), LotteryTier.DEFAULT, LotteryLogRecord.PRIZE_NONE,
+                System.currentTimeMillis(), ThreadLocalRandom.current().nextLong(), 0);
+    }
+
+    // 单次抽奖：一条玩家状态更新和一条日志，一个事务
+    @Benchmark
+    public boolean writeDraw() {
+        PlayerLotteryData player = randomPlayer();
+        player.incrementLotteryCount(1);
+        return storage.writeDraws(Collections.singletonList(new LotteryDraw(player, Collections.singletonList(log(player)))));
+    }
+
+    // 存储线程的一批写入：默认 log-batch-size 条抽奖在一个事务中写入
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public boolean writeDrawBatch() {
+        List<LotteryDraw> draws = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            PlayerLotteryData player = randomPlayer();
+            player.incrementLotteryCount(1);
+            draws.add(new LotteryDraw(player, Collections.singletonList(log(player))));
+        }
+        return storage.writeDraws(draws);
+    }
+
+    // 玩家加入时的数据加载
+    @Benchmark
+    public PlayerLotteryData loadPlayerData() {
+        return storage.loadPlayerData(randomPlayer().getPlayerUUID());
+    }
+
+    // /lottery history 的第一页
+    @Benchmark
+    public List<LotteryHistoryEntry> loadHistory() {
+        return storage.loadHistory(new HistoryCursor(randomPlayer().getPlayerUUID()), 1, 10);
+    }
+}
@@ -0,0 +1,11 @@
+package me.clip.placeholderapi;
+
+import org.bukkit.entity.Player;
+
+// 基准测试用的 PlaceholderAPI 替身，不做任何替换
+public class PlaceholderAPI {
+
+    public static String setPlaceholders(Player player, String text) {
+        return text;
+    }
+}
@@ -0,0 +1,24 @@
+package me.clip.placeholderapi.expansion;
+
+import org.bukkit.entity.Player;
+
+public abstract class PlaceholderExpansion {
+
+    public abstract String getIdentifier();
+
+    public abstract String getAuthor();
+
+    public abstract String getVersion();
+
+    public boolean persist() {
+        return false;
+    }
+
+    public String onPlaceholderRequest(Player player, String params) {
+        return null;
+    }
+
+    public boolean register() {
+        return true;
+    }
+}
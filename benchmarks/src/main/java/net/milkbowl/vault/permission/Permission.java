@@ -0,0 +1,11 @@
+package net.milkbowl.vault.permission;
+
+import org.bukkit.entity.Player;
+
+// 基准测试用的 Vault 权限接口替身，按玩家自身的权限判断
+public abstract class Permission {
+
+    public boolean has(Player player, String permission) {
+        return player.hasPermission(permission);
+    }
+}
@@ -0,0 +1,50 @@
+package org.bukkit;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+// 基准测试中没有服务器，只提供编译插件所需的方法
+public final class Bukkit {
+
+    private Bukkit() {
+    }
+
+    public static PluginManager getPluginManager() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static BukkitScheduler getScheduler() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static Collection<? extends Player> getOnlinePlayers() {
+        return Collections.emptyList();
+    }
+
+    public static OfflinePlayer getOfflinePlayer(UUID uuid) {
+        return null;
+    }
+
+    @Deprecated
+    public static OfflinePlayer getOfflinePlayer(String name) {
+        return null;
+    }
+
+    public static OfflinePlayer[] getOfflinePlayers() {
+        return new OfflinePlayer[0];
+    }
+
+    public static boolean dispatchCommand(CommandSender sender, String commandLine) {
+        return true;
+    }
+
+    public static CommandSender getConsoleSender() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,21 @@
+package org.bukkit;
+
+// 与 Bukkit 相同的颜色代码替换，消息模板的编译依赖它
+public enum ChatColor {
+    RED;
+
+    public static final char COLOR_CHAR = '§';
+
+    private static final String CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+
+    public static String translateAlternateColorCodes(char altColorChar, String textToTranslate) {
+        char[] chars = textToTranslate.toCharArray();
+        for (int i = 0; i < chars.length - 1; i++) {
+            if (chars[i] == altColorChar && CODES.indexOf(chars[i + 1]) > -1) {
+                chars[i] = COLOR_CHAR;
+                chars[i + 1] = Character.toLowerCase(chars[i + 1]);
+            }
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,10 @@
+package org.bukkit;
+
+import org.bukkit.util.Vector;
+
+public class Location {
+
+    public Vector getDirection() {
+        return new Vector();
+    }
+}
@@ -0,0 +1,14 @@
+package org.bukkit;
+
+import java.util.UUID;
+
+public interface OfflinePlayer {
+
+    String getName();
+
+    boolean isOnline();
+
+    boolean hasPlayedBefore();
+
+    UUID getUniqueId();
+}
@@ -0,0 +1,5 @@
+package org.bukkit;
+
+public enum Particle {
+    VILLAGER_HAPPY
+}
@@ -0,0 +1,11 @@
+package org.bukkit;
+
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+
+public interface Server {
+
+    ServicesManager getServicesManager();
+
+    PluginManager getPluginManager();
+}
@@ -0,0 +1,5 @@
+package org.bukkit;
+
+public enum Sound {
+    BLOCK_NOTE_BLOCK_PLING
+}
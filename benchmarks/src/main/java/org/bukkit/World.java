@@ -0,0 +1,6 @@
+package org.bukkit;
+
+public interface World {
+
+    void spawnParticle(Particle particle, Location location, int count, double offsetX, double offsetY, double offsetZ, double extra);
+}
@@ -0,0 +1,8 @@
+package org.bukkit.command;
+
+public abstract class Command {
+
+    public String getName() {
+        return null;
+    }
+}
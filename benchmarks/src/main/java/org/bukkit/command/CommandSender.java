@@ -0,0 +1,10 @@
+package org.bukkit.command;
+
+public interface CommandSender {
+
+    void sendMessage(String message);
+
+    boolean hasPermission(String permission);
+
+    String getName();
+}
@@ -0,0 +1,30 @@
+package org.bukkit.configuration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ConfigurationSection {
+
+    boolean getBoolean(String path, boolean def);
+
+    int getInt(String path, int def);
+
+    long getLong(String path, long def);
+
+    String getString(String path, String def);
+
+    String getString(String path);
+
+    List<String> getStringList(String path);
+
+    List<Map<?, ?>> getMapList(String path);
+
+    Object get(String path);
+
+    void set(String path, Object value);
+
+    Set<String> getKeys(boolean deep);
+
+    boolean isString(String path);
+}
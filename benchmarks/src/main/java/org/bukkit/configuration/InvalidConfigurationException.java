@@ -0,0 +1,14 @@
+package org.bukkit.configuration;
+
+public class InvalidConfigurationException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidConfigurationException(String message) {
+        super(message);
+    }
+
+    public InvalidConfigurationException(Throwable cause) {
+        super(cause);
+    }
+}
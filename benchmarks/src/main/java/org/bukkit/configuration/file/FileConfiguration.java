@@ -0,0 +1,139 @@
+package org.bukkit.configuration.file;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+// 以嵌套 Map 保存的配置，路径用 . 分隔，取值规则与 Bukkit 一致：类型不符或不存在时返回默认值
+public abstract class FileConfiguration implements ConfigurationSection {
+
+    // 顶层配置项，嵌套的配置节为 Map
+    protected final Map<String, Object> root = new LinkedHashMap<>();
+
+    @Override
+    public Object get(String path) {
+        Object current = root;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<?, ?>) current).get(part);
+        }
+        return current;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void set(String path, Object value) {
+        String[] parts = path.split("\\.");
+        Map<String, Object> section = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object child = section.get(parts[i]);
+            if (!(child instanceof Map)) {
+                if (value == null) {
+                    return;
+                }
+                child = new LinkedHashMap<String, Object>();
+                section.put(parts[i], child);
+            }
+            section = (Map<String, Object>) child;
+        }
+        if (value == null) {
+            section.remove(parts[parts.length - 1]);
+        } else {
+            section.put(parts[parts.length - 1], value);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        Object value = get(path);
+        return value instanceof Boolean ? (Boolean) value : def;
+    }
+
+    @Override
+    public int getInt(String path, int def) {
+        Object value = get(path);
+        return value instanceof Number ? ((Number) value).intValue() : def;
+    }
+
+    @Override
+    public long getLong(String path, long def) {
+        Object value = get(path);
+        return value instanceof Number ? ((Number) value).longValue() : def;
+    }
+
+    @Override
+    public String getString(String path, String def) {
+        Object value = get(path);
+        return value != null ? value.toString() : def;
+    }
+
+    @Override
+    public String getString(String path) {
+        return getString(path, null);
+    }
+
+    @Override
+    public boolean isString(String path) {
+        return get(path) instanceof String;
+    }
+
+    @Override
+    public List<String> getStringList(String path) {
+        Object value = get(path);
+        List<String> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element != null) {
+                    result.add(element.toString());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map<?, ?>> getMapList(String path) {
+        Object value = get(path);
+        List<Map<?, ?>> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element instanceof Map) {
+                    result.add((Map<?, ?>) element);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getKeys(boolean deep) {
+        Set<String> keys = new LinkedHashSet<>();
+        collectKeys(root, "", deep, keys);
+        return keys;
+    }
+
+    private static void collectKeys(Map<?, ?> section, String prefix, boolean deep, Set<String> keys) {
+        for (Map.Entry<?, ?> entry : section.entrySet()) {
+            String key = prefix + entry.getKey();
+            keys.add(key);
+            if (deep && entry.getValue() instanceof Map) {
+                collectKeys((Map<?, ?>) entry.getValue(), key + ".", true, keys);
+            }
+        }
+    }
+
+    public abstract String saveToString();
+
+    public abstract void loadFromString(String contents) throws InvalidConfigurationException;
+
+    public void load(File file) throws IOException, InvalidConfigurationException {
+        loadFromString(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
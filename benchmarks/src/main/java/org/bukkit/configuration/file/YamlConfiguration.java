@@ -0,0 +1,54 @@
+package org.bukkit.configuration.file;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+// 用 SnakeYAML 读写的配置，与 Bukkit 一样使用块格式和两格缩进
+public class YamlConfiguration extends FileConfiguration {
+
+    @Override
+    public String saveToString() {
+        if (root.isEmpty()) {
+            return "";
+        }
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setIndent(2);
+        return new Yaml(options).dump(root);
+    }
+
+    @Override
+    public void loadFromString(String contents) throws InvalidConfigurationException {
+        Object loaded;
+        try {
+            loaded = new Yaml().load(contents);
+        } catch (YAMLException e) {
+            throw new InvalidConfigurationException(e);
+        }
+        root.clear();
+        if (loaded instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) loaded).entrySet()) {
+                root.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+        } else if (loaded != null) {
+            throw new InvalidConfigurationException("Top level is not a Map.");
+        }
+    }
+
+    // 读取失败时返回空配置
+    public static YamlConfiguration loadConfiguration(File file) {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            // 与 Bukkit 一样忽略，调用方按默认值处理
+        }
+        return config;
+    }
+}
@@ -0,0 +1,24 @@
+package org.bukkit.entity;
+
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.util.Vector;
+
+public interface Player extends CommandSender, OfflinePlayer {
+
+    String getLocale();
+
+    Location getLocation();
+
+    void playSound(Location location, Sound sound, float volume, float pitch);
+
+    World getWorld();
+
+    boolean addPotionEffect(PotionEffect effect);
+
+    void setVelocity(Vector velocity);
+}
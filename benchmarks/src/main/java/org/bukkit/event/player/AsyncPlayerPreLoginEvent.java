@@ -0,0 +1,18 @@
+package org.bukkit.event.player;
+
+import java.util.UUID;
+
+public class AsyncPlayerPreLoginEvent {
+
+    public enum Result {
+        ALLOWED, KICK_OTHER
+    }
+
+    public Result getLoginResult() {
+        return Result.ALLOWED;
+    }
+
+    public UUID getUniqueId() {
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package org.bukkit.event.player;
+
+import org.bukkit.entity.Player;
+
+public class PlayerChangedWorldEvent {
+
+    public Player getPlayer() {
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package org.bukkit.event.player;
+
+import org.bukkit.entity.Player;
+
+public class PlayerLocaleChangeEvent {
+
+    public Player getPlayer() {
+        return null;
+    }
+
+    public String getLocale() {
+        return null;
+    }
+}
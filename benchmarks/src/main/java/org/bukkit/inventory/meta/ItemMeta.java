@@ -0,0 +1,4 @@
+package org.bukkit.inventory.meta;
+
+public interface ItemMeta {
+}
@@ -0,0 +1,15 @@
+package org.bukkit.plugin;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PluginDescriptionFile {
+
+    public List<String> getAuthors() {
+        return Collections.emptyList();
+    }
+
+    public String getVersion() {
+        return "benchmark";
+    }
+}
@@ -0,0 +1,8 @@
+package org.bukkit.plugin;
+
+public class RegisteredServiceProvider<T> {
+
+    public T getProvider() {
+        return null;
+    }
+}
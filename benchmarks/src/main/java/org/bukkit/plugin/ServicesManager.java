@@ -0,0 +1,6 @@
+package org.bukkit.plugin;
+
+public interface ServicesManager {
+
+    <T> RegisteredServiceProvider<T> getRegistration(Class<T> service);
+}
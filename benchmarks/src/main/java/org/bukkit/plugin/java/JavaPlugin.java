@@ -0,0 +1,90 @@
+package org.bukkit.plugin.java;
+
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+// 不依赖服务器的插件基类，提供日志、数据目录、配置文件和资源释放
+public abstract class JavaPlugin implements Plugin {
+
+    private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+    private final File dataFolder;
+    private FileConfiguration config;
+
+    protected JavaPlugin() {
+        this(new File("plugins", "SalxLottery"));
+    }
+
+    // 基准测试在临时目录中运行插件
+    protected JavaPlugin(File dataFolder) {
+        this.dataFolder = dataFolder;
+    }
+
+    public void onEnable() {
+    }
+
+    public void onDisable() {
+    }
+
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        return false;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    public FileConfiguration getConfig() {
+        if (config == null) {
+            config = YamlConfiguration.loadConfiguration(new File(dataFolder, "config.yml"));
+        }
+        return config;
+    }
+
+    public void saveDefaultConfig() {
+        if (!new File(dataFolder, "config.yml").exists()) {
+            saveResource("config.yml", false);
+        }
+    }
+
+    // 把类路径中的资源复制到数据目录
+    public void saveResource(String resourcePath, boolean replace) {
+        File target = new File(dataFolder, resourcePath);
+        if (target.exists() && !replace) {
+            return;
+        }
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            if (input == null) {
+                throw new IllegalArgumentException("The embedded resource '" + resourcePath + "' cannot be found");
+            }
+            target.getParentFile().mkdirs();
+            Files.copy(input, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Server getServer() {
+        throw new UnsupportedOperationException();
+    }
+
+    public PluginDescriptionFile getDescription() {
+        return new PluginDescriptionFile();
+    }
+}
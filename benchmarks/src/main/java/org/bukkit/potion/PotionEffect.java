@@ -0,0 +1,7 @@
+package org.bukkit.potion;
+
+public class PotionEffect {
+
+    public PotionEffect(PotionEffectType type, int duration, int amplifier) {
+    }
+}
@@ -0,0 +1,6 @@
+package org.bukkit.potion;
+
+public abstract class PotionEffectType {
+
+    public static final PotionEffectType CONFUSION = null;
+}
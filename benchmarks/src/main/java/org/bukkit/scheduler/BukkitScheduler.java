@@ -0,0 +1,16 @@
+package org.bukkit.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+public interface BukkitScheduler {
+
+    BukkitTask runTaskTimer(Plugin plugin, Runnable task, long delay, long period);
+
+    BukkitTask runTaskTimerAsynchronously(Plugin plugin, Runnable task, long delay, long period);
+
+    BukkitTask runTask(Plugin plugin, Runnable task);
+
+    BukkitTask runTaskAsynchronously(Plugin plugin, Runnable task);
+
+    BukkitTask runTaskLaterAsynchronously(Plugin plugin, Runnable task, long delay);
+}
@@ -0,0 +1,12 @@
+package org.bukkit.util;
+
+public class Vector {
+
+    public Vector multiply(double factor) {
+        return this;
+    }
+
+    public Vector setY(double y) {
+        return this;
+    }
+}
@@ -0,0 +1,69 @@
+package lottery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// 排行榜在后台加载成功前收到的增量，已计入加载结果的不重复计算，未计入的加到加载结果上
+class LeaderboardLoadTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+    private static final UUID CAROL = UUID.randomUUID();
+
+    @Test
+    void mergesIncrementsNotYetInTheLoadedScore() {
+        Leaderboard leaderboard = new Leaderboard(10, ResetPeriod.NEVER);
+        // 位置为增量后的累计次数
+        leaderboard.increment(ALICE, "alice", 2, 12);
+        leaderboard.increment(BOB, "bob", 1, 5);
+        leaderboard.increment(ALICE, "alice", 3, 15);
+        leaderboard.increment(CAROL, "carol", 4, 4);
+
+        // alice 的第一次增量已写入数据库，第二次还没有；bob 的增量恰好是加载结果的最后一次
+        Map<UUID, Long> loaded = new HashMap<>();
+        loaded.put(ALICE, 12L);
+        loaded.put(BOB, 5L);
+        leaderboard.load(ResetPeriod.NEVER.currentEpoch(), loaded, playerUUID -> loaded.getOrDefault(playerUUID, 0L), playerUUID -> "db");
+
+        assertEntry(leaderboard, 1, ALICE, "alice", 15);
+        assertEntry(leaderboard, 2, BOB, "bob", 5);
+        assertEntry(leaderboard, 3, CAROL, "carol", 4);
+        assertNull(leaderboard.getEntry(4));
+
+        // 加载成功后只做增量更新
+        leaderboard.increment(BOB, "bob", 20, 25);
+        assertEntry(leaderboard, 1, BOB, "bob", 25);
+    }
+
+    @Test
+    void keepsIncrementsUntilALoadSucceeds() {
+        Leaderboard leaderboard = new Leaderboard(10, ResetPeriod.NEVER);
+        leaderboard.increment(ALICE, "alice", 2, 2);
+        assertEntry(leaderboard, 1, ALICE, "alice", 2);
+        // 加载失败时不调用 load，之后的增量继续记录，重试成功时一起合并
+        leaderboard.increment(ALICE, "alice", 1, 3);
+        leaderboard.load(ResetPeriod.NEVER.currentEpoch(), Collections.singletonMap(ALICE, 2L), playerUUID -> 2L, playerUUID -> "db");
+        assertEntry(leaderboard, 1, ALICE, "alice", 3);
+    }
+
+    @Test
+    void namesLoadedPlayersWithoutIncrements() {
+        Leaderboard leaderboard = new Leaderboard(1, ResetPeriod.NEVER);
+        leaderboard.load(ResetPeriod.NEVER.currentEpoch(), Collections.singletonMap(BOB, 7L), playerUUID -> 7L, playerUUID -> "db");
+        assertEntry(leaderboard, 1, BOB, "db", 7);
+    }
+
+    private static void assertEntry(Leaderboard leaderboard, int rank, UUID playerUUID, String name, long score) {
+        Leaderboard.Entry entry = leaderboard.getEntry(rank);
+        assertEquals(playerUUID, entry.getPlayerUUID());
+        assertEquals(name, entry.getName());
+        assertEquals(score, entry.getScore());
+    }
+}
@@ -0,0 +1,112 @@
+package lottery;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 两个存储实例各用自己的连接访问同一个数据库，模拟共用数据库的两台服务器同时为同一玩家抽奖
+// 同一版本号只能有一方写入成功，且只有成功的一方写入了日志
+class ReserveDrawConcurrencyTest {
+
+    private static final int ROUNDS = 50;
+
+    private BenchmarkPlugin plugin;
+    private LotteryStorage first;
+    private LotteryStorage second;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        plugin = new BenchmarkPlugin();
+        first = openSharedStorage();
+        second = openSharedStorage();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        first.close();
+        second.close();
+        plugin.deleteDataFolder();
+    }
+
+    private LotteryStorage openSharedStorage() throws Exception {
+        YamlConfiguration config = BenchmarkPlugin.loadDefaultConfig();
+        config.set("shared-database", true);
+        LotteryStorage storage = new LotteryStorage(plugin, config, new LotteryMetrics());
+        if (!storage.initDatabase() || !storage.createTables()) {
+            throw new IllegalStateException("无法初始化数据库");
+        }
+        return storage;
+    }
+
+    @Test
+    void onlyOneServerReservesTheSameVersion() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                UUID playerUUID = UUID.randomUUID();
+                PlayerLotteryData onFirst = first.loadPlayerData(playerUUID);
+                PlayerLotteryData onSecond = second.loadPlayerData(playerUUID);
+                assertEquals(onFirst.getVersion(), onSecond.getVersion());
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<LotteryStorage.Reservation> firstResult = threads.submit(() -> {
+                    start.await();
+                    return first.reserveDraw(playerUUID, onFirst.getVersion(), outcome(playerUUID, 1));
+                });
+                Future<LotteryStorage.Reservation> secondResult = threads.submit(() -> {
+                    start.await();
+                    return second.reserveDraw(playerUUID, onSecond.getVersion(), outcome(playerUUID, 3));
+                });
+                start.countDown();
+
+                List<LotteryStorage.Reservation> results = Arrays.asList(firstResult.get(30, TimeUnit.SECONDS), secondResult.get(30, TimeUnit.SECONDS));
+                assertEquals(1, Collections.frequency(results, LotteryStorage.Reservation.RESERVED), "round " + round + ": " + results);
+                assertEquals(1, Collections.frequency(results, LotteryStorage.Reservation.CONFLICT), "round " + round + ": " + results);
+
+                // 数据库中的状态和日志都来自成功的一方
+                int winnerDraws = results.get(0) == LotteryStorage.Reservation.RESERVED ? 1 : 3;
+                PlayerLotteryData stored = first.loadPlayerData(playerUUID);
+                assertEquals(onFirst.getVersion() + 1, stored.getVersion());
+                assertEquals(winnerDraws, stored.getLotteryCount());
+                assertEquals(winnerDraws, countLogs(playerUUID));
+                assertEquals(winnerDraws, stored.getTotalDraws());
+                assertEquals(Long.valueOf(winnerDraws), first.loadDrawTotals().get(playerUUID));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    // draws 次未中奖的抽奖
+    private static LotteryOutcome outcome(UUID playerUUID, int draws) {
+        long now = System.currentTimeMillis();
+        List<LotteryLogRecord> logs = new ArrayList<>();
+        for (int i = 0; i < draws; i++) {
+            logs.add(new LotteryLogRecord(playerUUID, LotteryTier.DEFAULT, LotteryLogRecord.PRIZE_NONE, now, i, 0));
+        }
+        return new LotteryOutcome(Collections.emptyMap(), Collections.emptyList(), logs, 0, false,
+                draws, false, draws, false, draws, 0, now, Collections.emptyList());
+    }
+
+    private long countLogs(UUID playerUUID) throws SQLException {
+        String url = "jdbc:sqlite:" + plugin.getDataFolder().toPath().resolve("lottery.db").toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url);
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM lottery_logs WHERE player_uuid = ?")) {
+            statement.setBytes(1, LotteryStorage.toBytes(playerUUID));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+}